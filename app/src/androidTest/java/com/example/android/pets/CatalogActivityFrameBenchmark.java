@@ -0,0 +1,186 @@
+package com.example.android.pets;
+
+import android.annotation.TargetApi;
+import android.app.Instrumentation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.filters.SdkSuppress;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+
+import com.example.android.pets.benchmark.BenchmarkPets;
+import com.example.android.pets.benchmark.BenchmarkReport;
+import com.example.android.pets.benchmark.DeviceBenchmarks;
+import com.example.android.pets.benchmark.LatencyRecorder;
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrolls the catalog through 10,000 pets, a fixed distance every frame, and measures the time
+ * between frames, including the frames that bind rows and the ones that take in the next page.
+ * Writes files/benchmarks/catalog_frames.json in the app's external storage.
+ *
+ * This replaces every pet on the device with the benchmark's, and deletes them afterwards.
+ */
+@RunWith(AndroidJUnit4.class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+public class CatalogActivityFrameBenchmark {
+
+    private static final int ROWS = 10000;
+
+    /** Rows written by each bulk insert while filling the table */
+    private static final int FILL_CHUNK_SIZE = 1000;
+
+    /** Limit on frames scrolled, should the list stop growing */
+    private static final int MAX_FRAMES = 5000;
+
+    /** Fraction of the list's height scrolled each frame */
+    private static final int SCROLL_STEPS_PER_SCREEN = 4;
+
+    /** A frame counts as janky when it takes more than this many frame budgets */
+    private static final double JANK_THRESHOLD = 1.5;
+
+    @Rule
+    public ActivityTestRule<CatalogActivity> mActivityRule =
+            new ActivityTestRule<>(CatalogActivity.class, false, false);
+
+    private Instrumentation mInstrumentation;
+
+    private ContentResolver mResolver;
+
+    @Before
+    public void setUp() {
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mResolver = mInstrumentation.getTargetContext().getContentResolver();
+
+        mResolver.delete(PetEntry.CONTENT_URI, null, null);
+        for (int first = 0; first < ROWS; first += FILL_CHUNK_SIZE) {
+            ContentValues[] chunk = BenchmarkPets.newPets(first,
+                    Math.min(FILL_CHUNK_SIZE, ROWS - first));
+            assertEquals(chunk.length, mResolver.bulkInsert(PetEntry.CONTENT_URI, chunk));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mResolver.delete(PetEntry.CONTENT_URI, null, null);
+    }
+
+    @Test
+    public void measureScrollFrameTimes() throws Exception {
+        CatalogActivity activity = mActivityRule.launchActivity(null);
+        RecyclerView list = (RecyclerView) activity.findViewById(R.id.recycler_view_pet);
+        awaitFirstPage(list);
+
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        long frameBudgetNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refreshRate);
+        final FrameScroller scroller = new FrameScroller(list, frameBudgetNanos);
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                scroller.start();
+            }
+        });
+        assertTrue("Scrolling timed out", scroller.await(5, TimeUnit.MINUTES));
+
+        BenchmarkReport report = new BenchmarkReport("catalog_frames");
+        report.add("scroll").put("rows", ROWS).put("rows_reached", scroller.mRowsReached)
+                .put("frame_budget_ns", frameBudgetNanos)
+                .put("janky_frames", scroller.mJankyFrames)
+                .put(scroller.mFrameIntervals);
+        report.write(DeviceBenchmarks.getOutputDirectory(activity));
+    }
+
+    /**
+     * Wait until the catalog shows its first page.
+     */
+    private void awaitFirstPage(final RecyclerView list) throws InterruptedException {
+        final int[] count = new int[1];
+        long deadline = SystemClock.uptimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (SystemClock.uptimeMillis() < deadline) {
+            mInstrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    count[0] = list.getAdapter().getItemCount();
+                }
+            });
+            if (count[0] > 0) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("The catalog showed no pets");
+    }
+
+    /**
+     * Scrolls the list a step every frame, until the last pet is on screen, recording the time
+     * since the previous frame. Only touched on the main thread until it finishes.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class FrameScroller implements Choreographer.FrameCallback {
+
+        private final RecyclerView mList;
+
+        private final long mJankNanos;
+
+        private final CountDownLatch mFinished = new CountDownLatch(1);
+
+        private final LatencyRecorder mFrameIntervals = new LatencyRecorder();
+
+        private long mLastFrameNanos;
+
+        private int mJankyFrames;
+
+        private int mRowsReached;
+
+        FrameScroller(RecyclerView list, long frameBudgetNanos) {
+            mList = list;
+            mJankNanos = (long) (frameBudgetNanos * JANK_THRESHOLD);
+        }
+
+        void start() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return mFinished.await(timeout, unit);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mLastFrameNanos != 0) {
+                long interval = frameTimeNanos - mLastFrameNanos;
+                mFrameIntervals.record(interval);
+                if (interval > mJankNanos) {
+                    mJankyFrames++;
+                }
+            }
+            mLastFrameNanos = frameTimeNanos;
+
+            mRowsReached = mList.getAdapter().getItemCount();
+            boolean atEnd = mRowsReached >= ROWS && !mList.canScrollVertically(1);
+            if (atEnd || mFrameIntervals.getCount() >= MAX_FRAMES) {
+                mFinished.countDown();
+                return;
+            }
+            mList.scrollBy(0, mList.getHeight() / SCROLL_STEPS_PER_SCREEN);
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
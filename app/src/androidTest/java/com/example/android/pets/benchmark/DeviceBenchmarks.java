@@ -0,0 +1,23 @@
+package com.example.android.pets.benchmark;
+
+import android.content.Context;
+
+import java.io.File;
+
+/**
+ * Settings for the on-device benchmarks, which run with ./gradlew connectedAndroidTest.
+ */
+public final class DeviceBenchmarks {
+
+    private DeviceBenchmarks() {
+    }
+
+    /**
+     * Return the directory to write reports to. Pull it with
+     * adb pull /sdcard/Android/data/com.example.android.pets/files/benchmarks
+     */
+    public static File getOutputDirectory(Context context) {
+        File directory = context.getExternalFilesDir("benchmarks");
+        return directory != null ? directory : new File(context.getFilesDir(), "benchmarks");
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.android.pets.data;
+
+import android.content.Context;
+import android.database.AbstractCursor;
+import android.database.CursorWindow;
+import android.database.MatrixCursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.pets.benchmark.BenchmarkPets;
+import com.example.android.pets.benchmark.BenchmarkReport;
+import com.example.android.pets.benchmark.DeviceBenchmarks;
+import com.example.android.pets.benchmark.LatencyRecorder;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link CompactCursor} with MatrixCursor on the heap each one holds, the time to fill
+ * one with rows, and the time to copy its rows into a CursorWindow, as happens when a cursor is
+ * sent to another process. Rows have the columns of a pet plus a fractional one, and both
+ * cursors share the same name strings. Writes files/benchmarks/compact_cursor.json in the app's
+ * external storage.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CompactCursorBenchmark {
+
+    private static final int[] ROW_COUNTS = {1000, 10000, 100000};
+
+    /** Timed fills of each cursor, after one untimed warm-up fill */
+    private static final int RUNS = 10;
+
+    private static final String[] COLUMNS = {"_id", "name", "breed", "gender", "weight", "score"};
+
+    private static final int[] COLUMN_TYPES = {
+            CompactCursor.TYPE_LONG,
+            CompactCursor.TYPE_STRING,
+            CompactCursor.TYPE_STRING,
+            CompactCursor.TYPE_LONG,
+            CompactCursor.TYPE_LONG,
+            CompactCursor.TYPE_DOUBLE
+    };
+
+    @Test
+    public void compareWithMatrixCursor() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("compact_cursor");
+        for (int rows : ROW_COUNTS) {
+            String[] names = new String[rows];
+            for (int i = 0; i < rows; i++) {
+                names[i] = BenchmarkPets.getName(i);
+            }
+            measure(report, rows, names, true);
+            measure(report, rows, names, false);
+        }
+
+        Context context = InstrumentationRegistry.getTargetContext();
+        report.write(DeviceBenchmarks.getOutputDirectory(context));
+    }
+
+    private static void measure(BenchmarkReport report, int rows, String[] names,
+                                boolean compact) {
+        String cursorName = compact ? "compact" : "matrix";
+
+        // Heap held by one cursor, with the shared name strings already allocated
+        long before = getUsedMemory();
+        AbstractCursor cursor = build(rows, names, compact);
+        long retained = getUsedMemory() - before;
+        assertEquals(rows, cursor.getCount());
+        report.add("memory").put("cursor", cursorName).put("rows", rows)
+                .put("bytes", retained).put("bytes_per_row", (double) retained / rows);
+        cursor.close();
+
+        LatencyRecorder fill = new LatencyRecorder();
+        LatencyRecorder window = new LatencyRecorder();
+        for (int run = 0; run <= RUNS; run++) {
+            long startNanos = System.nanoTime();
+            cursor = build(rows, names, compact);
+            long fillNanos = System.nanoTime() - startNanos;
+
+            CursorWindow cursorWindow = new CursorWindow(cursorName);
+            try {
+                startNanos = System.nanoTime();
+                cursor.fillWindow(0, cursorWindow);
+                long windowNanos = System.nanoTime() - startNanos;
+                if (run > 0) {
+                    fill.record(fillNanos);
+                    window.record(windowNanos);
+                }
+            } finally {
+                cursorWindow.close();
+                cursor.close();
+            }
+        }
+        report.add("fill").put("cursor", cursorName).put("rows", rows).put(fill);
+        report.add("fill_window").put("cursor", cursorName).put("rows", rows).put(window);
+    }
+
+    private static AbstractCursor build(int rows, String[] names, boolean compact) {
+        if (compact) {
+            CompactCursor cursor = new CompactCursor(COLUMNS, COLUMN_TYPES, rows);
+            for (int i = 0; i < rows; i++) {
+                int row = cursor.addRow();
+                cursor.setLong(row, 0, i + 1);
+                cursor.setString(row, 1, names[i]);
+                cursor.setString(row, 2, BenchmarkPets.getBreed(i));
+                cursor.setLong(row, 3, BenchmarkPets.getGender(i));
+                cursor.setLong(row, 4, BenchmarkPets.getWeight(i));
+                cursor.setDouble(row, 5, i / 7.0);
+            }
+            return cursor;
+        }
+        MatrixCursor cursor = new MatrixCursor(COLUMNS, rows);
+        for (int i = 0; i < rows; i++) {
+            cursor.addRow(new Object[]{(long) (i + 1), names[i], BenchmarkPets.getBreed(i),
+                    (long) BenchmarkPets.getGender(i), (long) BenchmarkPets.getWeight(i), i / 7.0});
+        }
+        return cursor;
+    }
+
+    /**
+     * Return the heap in use once the garbage collector has run, as near as the runtime allows.
+     */
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.android.pets.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.pets.benchmark.BenchmarkPets;
+import com.example.android.pets.benchmark.BenchmarkReport;
+import com.example.android.pets.benchmark.DeviceBenchmarks;
+import com.example.android.pets.benchmark.LatencyRecorder;
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures how long the catalog's reads take while another thread is writing, with rollback
+ * journaling and with write-ahead logging. With rollback journaling a read waits for the
+ * writer's whole transaction; with write-ahead logging it runs on a connection of its own.
+ * Writes files/benchmarks/pet_db_concurrency.json in the app's external storage.
+ *
+ * This runs on a device, as Robolectric's SQLite serializes every connection.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PetDbHelperConcurrencyBenchmark {
+
+    /** Pets in the table before the writer starts */
+    private static final int ROWS = 10000;
+
+    /** Pets each write transaction inserts, about the size of a bulk import chunk */
+    private static final int WRITE_BATCH_SIZE = 2000;
+
+    /** How long readers run, both without and alongside the writer */
+    private static final long RUN_MILLIS = 5000;
+
+    /** The first page of the catalog, in name order */
+    private static final String SQL_READ_PAGE = "SELECT " + PetEntry._ID + ", " +
+            PetEntry.COLUMN_PET_NAME + " FROM " + PetEntry.TABLE_NAME + " ORDER BY " +
+            PetEntry.COLUMN_PET_NAME + " LIMIT 50";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+    }
+
+    @Test
+    public void measureReadLatencyDuringWrites() throws Exception {
+        BenchmarkReport report = new BenchmarkReport("pet_db_concurrency");
+        measure(report, false);
+        measure(report, true);
+
+        report.write(DeviceBenchmarks.getOutputDirectory(mContext));
+    }
+
+    private void measure(BenchmarkReport report, boolean writeAheadLogging) throws Exception {
+        String journal = writeAheadLogging ? "wal" : "rollback";
+        String name = "benchmark_" + journal + ".db";
+        mContext.deleteDatabase(name);
+        PetDbHelper helper = new PetDbHelper(mContext, name, writeAheadLogging,
+                PetDbHelper.CACHE_SIZE_DEFAULT, PetDbHelper.SYNCHRONOUS_DEFAULT);
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            insertPets(db, ROWS);
+
+            report.add("read_idle").put("journal", journal).put("rows", ROWS)
+                    .put(readFor(db, RUN_MILLIS, null));
+
+            Writer writer = new Writer(db);
+            writer.start();
+            writer.awaitStart();
+            LatencyRecorder busy = readFor(db, RUN_MILLIS, writer);
+            writer.finish();
+
+            report.add("read_during_writes").put("journal", journal).put("rows", ROWS)
+                    .put(busy);
+            report.add("write_transaction").put("journal", journal)
+                    .put("batch_size", WRITE_BATCH_SIZE).put(writer.mLatencies);
+        } finally {
+            helper.close();
+            mContext.deleteDatabase(name);
+        }
+    }
+
+    /**
+     * Read the first catalog page over and over for the given time, or until the writer stops,
+     * and return how long each read took.
+     */
+    private static LatencyRecorder readFor(SQLiteDatabase db, long millis, Writer writer) {
+        LatencyRecorder latencies = new LatencyRecorder();
+        long endNanos = System.nanoTime() + millis * 1000000;
+        while (System.nanoTime() < endNanos && (writer == null || writer.isAlive())) {
+            long startNanos = System.nanoTime();
+            Cursor cursor = db.rawQuery(SQL_READ_PAGE, null);
+            try {
+                while (cursor.moveToNext()) {
+                    cursor.getString(1);
+                }
+            } finally {
+                cursor.close();
+            }
+            latencies.record(System.nanoTime() - startNanos);
+        }
+        return latencies;
+    }
+
+    private static void insertPets(SQLiteDatabase db, int count) {
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < count; i++) {
+                values.put(PetEntry.COLUMN_PET_NAME, BenchmarkPets.getName(i));
+                values.put(PetEntry.COLUMN_PET_GENDER, BenchmarkPets.getGender(i));
+                values.put(PetEntry.COLUMN_PET_WEIGHT, BenchmarkPets.getWeight(i));
+                db.insertOrThrow(PetEntry.TABLE_NAME, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Inserts batches of pets, one transaction each, until told to finish.
+     */
+    private static class Writer extends Thread {
+
+        private final SQLiteDatabase mDb;
+
+        private final CountDownLatch mStarted = new CountDownLatch(1);
+
+        private final LatencyRecorder mLatencies = new LatencyRecorder();
+
+        private volatile boolean mFinished;
+
+        private volatile RuntimeException mError;
+
+        Writer(SQLiteDatabase db) {
+            super("PetDbHelperConcurrencyBenchmark writer");
+            mDb = db;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mStarted.countDown();
+                while (!mFinished) {
+                    long startNanos = System.nanoTime();
+                    insertPets(mDb, WRITE_BATCH_SIZE);
+                    mLatencies.record(System.nanoTime() - startNanos);
+                }
+            } catch (RuntimeException e) {
+                mError = e;
+            }
+        }
+
+        void awaitStart() throws InterruptedException {
+            mStarted.await();
+        }
+
+        /**
+         * Stop after the current transaction, and rethrow anything the writer failed with.
+         */
+        void finish() throws InterruptedException {
+            mFinished = true;
+            join();
+            if (mError != null) {
+                throw mError;
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.android.pets.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.pets.benchmark.BenchmarkPets;
+import com.example.android.pets.benchmark.BenchmarkReport;
+import com.example.android.pets.benchmark.DeviceBenchmarks;
+import com.example.android.pets.benchmark.LatencyRecorder;
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * Compares the per-call time of {@link PetStatementCache}'s insert, update-by-id and
+ * delete-by-id with the {@link SQLiteDatabase} insert, update and delete calls PetProvider made
+ * before, which build the SQL from the values on every call. Calls are timed inside one
+ * transaction per run, so the time to sync the journal doesn't drown out the difference. Writes
+ * files/benchmarks/pet_statement_cache.json in the app's external storage.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PetStatementCacheBenchmark {
+
+    private static final String DATABASE_NAME = "benchmark_statements.db";
+
+    /** Pets in the table before the first run, which updates pick from and deletes never reach */
+    private static final int BASE_ROWS = 10000;
+
+    /** Calls timed per run */
+    private static final int OPERATIONS = 2000;
+
+    /** Runs of each approach, alternating, after one untimed warm-up run */
+    private static final int RUNS = 5;
+
+    private Context mContext;
+
+    private PetDbHelper mDbHelper;
+
+    private SQLiteDatabase mDatabase;
+
+    private PetBreeds mBreeds;
+
+    private PetStatementCache mStatements;
+
+    private final Random mRandom = new Random(42);
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+        mDbHelper = new PetDbHelper(mContext, DATABASE_NAME, false,
+                PetDbHelper.CACHE_SIZE_DEFAULT, PetDbHelper.SYNCHRONOUS_DEFAULT);
+        mDatabase = mDbHelper.getWritableDatabase();
+        mBreeds = new PetBreeds();
+        mStatements = new PetStatementCache(mBreeds);
+
+        mDatabase.beginTransaction();
+        try {
+            for (int i = 0; i < BASE_ROWS; i++) {
+                mStatements.insert(mDatabase, BenchmarkPets.getName(i), BenchmarkPets.getBreed(i),
+                        BenchmarkPets.getGender(i), BenchmarkPets.getWeight(i));
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+            mBreeds.onTransactionEnded(true);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mStatements.clear();
+        mDbHelper.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void measurePerCallTimes() throws Exception {
+        LatencyRecorder[] framework = new LatencyRecorder[3];
+        LatencyRecorder[] cached = new LatencyRecorder[3];
+        for (int i = 0; i < 3; i++) {
+            framework[i] = new LatencyRecorder();
+            cached[i] = new LatencyRecorder();
+        }
+
+        for (int run = 0; run <= RUNS; run++) {
+            // The warm-up run compiles the cached statements and fills the breed cache
+            boolean timed = run > 0;
+            measureInserts(timed ? framework[0] : null, false);
+            measureInserts(timed ? cached[0] : null, true);
+            measureUpdates(timed ? framework[1] : null, false);
+            measureUpdates(timed ? cached[1] : null, true);
+            measureDeletes(timed ? framework[2] : null, false);
+            measureDeletes(timed ? cached[2] : null, true);
+        }
+
+        BenchmarkReport report = new BenchmarkReport("pet_statement_cache");
+        String[] operations = {"insert", "update", "delete"};
+        for (int i = 0; i < 3; i++) {
+            report.add(operations[i] + "_framework").put(framework[i]);
+            report.add(operations[i] + "_cached").put(cached[i]);
+            report.add(operations[i] + "_improvement").put("p50_ratio",
+                    (double) framework[i].getPercentileNanos(50)
+                            / cached[i].getPercentileNanos(50));
+        }
+        report.write(DeviceBenchmarks.getOutputDirectory(mContext));
+    }
+
+    /**
+     * Insert {@link #OPERATIONS} full pet rows in one transaction, recording each call's time
+     * unless the recorder is null.
+     */
+    private void measureInserts(LatencyRecorder latencies, boolean cached) {
+        mDatabase.beginTransaction();
+        try {
+            for (int i = 0; i < OPERATIONS; i++) {
+                String name = BenchmarkPets.getName(i);
+                String breed = BenchmarkPets.getBreed(i);
+                int gender = BenchmarkPets.getGender(i);
+                int weight = BenchmarkPets.getWeight(i);
+                long startNanos = System.nanoTime();
+                if (cached) {
+                    mStatements.insert(mDatabase, name, breed, gender, weight);
+                } else {
+                    ContentValues values = new ContentValues();
+                    values.put(PetEntry.COLUMN_PET_NAME, name);
+                    values.put(PetEntry.COLUMN_PET_BREED_ID, mBreeds.resolve(mDatabase, breed));
+                    values.put(PetEntry.COLUMN_PET_GENDER, gender);
+                    values.put(PetEntry.COLUMN_PET_WEIGHT, weight);
+                    mDatabase.insert(PetEntry.TABLE_NAME, null, values);
+                }
+                record(latencies, startNanos);
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+            mBreeds.onTransactionEnded(true);
+        }
+    }
+
+    /**
+     * Update the weight of {@link #OPERATIONS} random pets by id in one transaction.
+     */
+    private void measureUpdates(LatencyRecorder latencies, boolean cached) {
+        mDatabase.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < OPERATIONS; i++) {
+                long id = 1 + mRandom.nextInt(BASE_ROWS);
+                values.put(PetEntry.COLUMN_PET_WEIGHT, mRandom.nextInt(60));
+                long startNanos = System.nanoTime();
+                if (cached) {
+                    mStatements.update(mDatabase, id, values);
+                } else {
+                    mDatabase.update(PetEntry.TABLE_NAME, values, PetEntry._ID + " = ?",
+                            new String[]{Long.toString(id)});
+                }
+                record(latencies, startNanos);
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * Delete the {@link #OPERATIONS} newest pets by id in one transaction, which the inserts
+     * added.
+     */
+    private void measureDeletes(LatencyRecorder latencies, boolean cached) {
+        long maxId = getMaxId();
+        mDatabase.beginTransaction();
+        try {
+            for (long id = maxId; id > maxId - OPERATIONS; id--) {
+                long startNanos = System.nanoTime();
+                if (cached) {
+                    mStatements.delete(mDatabase, id);
+                } else {
+                    mDatabase.delete(PetEntry.TABLE_NAME, PetEntry._ID + " = ?",
+                            new String[]{Long.toString(id)});
+                }
+                record(latencies, startNanos);
+            }
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    private long getMaxId() {
+        return DatabaseUtils.longForQuery(mDatabase,
+                "SELECT MAX(" + PetEntry._ID + ") FROM " + PetEntry.TABLE_NAME, null);
+    }
+
+    private static void record(LatencyRecorder latencies, long startNanos) {
+        if (latencies != null) {
+            latencies.record(System.nanoTime() - startNanos);
+        }
+    }
+}
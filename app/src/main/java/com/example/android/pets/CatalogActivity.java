@@ -1,25 +1,40 @@
 package com.example.android.pets;
 
 import android.app.LoaderManager;
+import android.app.ProgressDialog;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.Context;
 import android.content.CursorLoader;
 import android.content.Intent;
 import android.content.Loader;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.design.widget.FloatingActionButton;
+import android.support.v4.view.MenuItemCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.text.TextUtils;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.util.Log;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.Toast;
 
 import com.example.android.pets.data.PetContract.PetEntry;
+import com.example.android.pets.data.PetContract.PetStatsEntry;
 import com.example.android.pets.data.PetDbHelper;
+import com.example.android.pets.data.PetImporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 
 /**
  * Displays list of pets that were entered and stored in the app.
@@ -30,11 +45,73 @@ public class CatalogActivity extends AppCompatActivity
     // Tag for log statements
     private static final String LOG_TAG = CatalogActivity.class.getSimpleName();
 
-    // Identifier for pets cursorloader
+    // Identifier for pets cursorloader. Page n of the list is loaded by loader PET_LOADER + n.
     private static final int PET_LOADER = 0;
 
-    // Global reference to list view
-    ListView mPetListView;
+    // Number of pets fetched per page of the list
+    private static final int PAGE_SIZE = 50;
+
+    // Start fetching the next page when the user scrolls within this many rows of the end
+    private static final int PREFETCH_DISTANCE = 15;
+
+    // Number of pets deleted per chunk when deleting every pet
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    // Request code for picking a file of pets to import
+    private static final int REQUEST_IMPORT = 1;
+
+    // Loader argument keys for the _id and sort column value of the last pet on the previous page
+    private static final String ARG_AFTER_ID = "after_id";
+    private static final String ARG_AFTER_VALUE = "after_value";
+
+    // Saved state keys for the list's order, filters, search text and page anchors
+    private static final String STATE_SORT = "sort";
+    private static final String STATE_GENDER_FILTER = "gender_filter";
+    private static final String STATE_MIN_WEIGHT_FILTER = "min_weight_filter";
+    private static final String STATE_MAX_WEIGHT_FILTER = "max_weight_filter";
+    private static final String STATE_SEARCH_QUERY = "search_query";
+    private static final String STATE_PAGE_AFTER_IDS = "page_after_ids";
+    private static final String STATE_PAGE_AFTER_VALUES = "page_after_values";
+
+    // Pages of pets loaded so far, in list order. An entry is null while its page is loading.
+    private final ArrayList<Cursor> mPages = new ArrayList<>();
+
+    // _id each page starts after, in list order
+    private final ArrayList<Long> mPageAfterIds = new ArrayList<>();
+
+    // Sort column value each page starts after, in list order. Null in _id order.
+    private final ArrayList<String> mPageAfterValues = new ArrayList<>();
+
+    // Order of the list, one of the PetEntry SORT_ constants, or null for the order pets were added
+    private String mSort;
+
+    // Gender and weight range filters, or PetEntry.FILTER_ANY
+    private int mGenderFilter = PetEntry.FILTER_ANY;
+    private int mMinWeightFilter = PetEntry.FILTER_ANY;
+    private int mMaxWeightFilter = PetEntry.FILTER_ANY;
+
+    // Current text in the search box. The list shows every pet while it is empty.
+    private String mSearchQuery = "";
+
+    // Observer that reloads only the page holding a changed pet, rather than every page
+    private final ContentObserver mPetObserver = new ContentObserver(new Handler()) {
+        @Override
+        public void onChange(boolean selfChange) {
+            // Older platforms don't say which URI changed
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            onPetsChanged(uri);
+        }
+    };
+
+    // Global reference to recycler view
+    RecyclerView mPetRecyclerView;
+
+    // Global reference to the view shown when there are no pets
+    View mEmptyView;
 
     // Global reference to instance of PetCursorAdapter
     PetCursorAdapter mCursorAdapter;
@@ -47,24 +124,16 @@ public class CatalogActivity extends AppCompatActivity
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_catalog);
 
-        // Find the ListView which will be populated with the pet data
-        mPetListView = (ListView) findViewById(R.id.list_view_pet);
-
-        // Find and set empty view on the ListView, so that it only shows when the list has 0 items.
-        View emptyView = findViewById(R.id.empty_view);
-        mPetListView.setEmptyView(emptyView);
-
-        // Create instance of cursor adapter
-        mCursorAdapter = new PetCursorAdapter(this, null);
-
-        // Set adapter on the list view
-        mPetListView.setAdapter(mCursorAdapter);
+        // Find the RecyclerView which will be populated with the pet data
+        mPetRecyclerView = (RecyclerView) findViewById(R.id.recycler_view_pet);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        mPetRecyclerView.setLayoutManager(layoutManager);
 
-        // Create a listener for when an item in the list view is selected
-        mPetListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // Create instance of cursor adapter, with a listener for when an item in the list is selected
+        mCursorAdapter = new PetCursorAdapter(this, new PetCursorAdapter.OnPetClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long id) {
-               //Create an intent
+            public void onPetClick(long id) {
+                //Create an intent
                 Intent intent = new Intent(CatalogActivity.this,EditorActivity.class);
 
                 // Construct a URI for a single database row, using the clicked item's ID
@@ -78,6 +147,41 @@ public class CatalogActivity extends AppCompatActivity
             }
         });
 
+        // Set adapter on the recycler view
+        mPetRecyclerView.setAdapter(mCursorAdapter);
+
+        // Find the empty view, and only show it when the list has 0 items.
+        mEmptyView = findViewById(R.id.empty_view);
+        mCursorAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                updateEmptyView();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+        });
+        updateEmptyView();
+
+        // Fetch the next page in the background as the user nears the end of the list
+        mPetRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int totalItemCount = layoutManager.getItemCount();
+                if (totalItemCount > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= totalItemCount - 1 - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
         // Setup FAB to open EditorActivity
         FloatingActionButton fab = (FloatingActionButton) findViewById(R.id.fab);
         fab.setOnClickListener(new View.OnClickListener() {
@@ -88,15 +192,78 @@ public class CatalogActivity extends AppCompatActivity
             }
         });
 
-        // Prepare the loader.  Either re-connect with an existing one,
-        // or start a new one.
-        getLoaderManager().initLoader(PET_LOADER, null, this);
+        // Watch for changes to the pets. Page loaders leave reloading to this observer.
+        getContentResolver().registerContentObserver(PetEntry.CONTENT_URI, true, mPetObserver);
+
+        // Prepare the loaders for the pages.  Either re-connect with the existing ones, kept
+        // across a configuration change along with the order, filters and search text they were
+        // loading, or start a new one for the first page.
+        if (savedInstanceState != null) {
+            mSort = savedInstanceState.getString(STATE_SORT);
+            mGenderFilter = savedInstanceState.getInt(STATE_GENDER_FILTER);
+            mMinWeightFilter = savedInstanceState.getInt(STATE_MIN_WEIGHT_FILTER);
+            mMaxWeightFilter = savedInstanceState.getInt(STATE_MAX_WEIGHT_FILTER);
+            mSearchQuery = savedInstanceState.getString(STATE_SEARCH_QUERY);
+            long[] afterIds = savedInstanceState.getLongArray(STATE_PAGE_AFTER_IDS);
+            ArrayList<String> afterValues =
+                    savedInstanceState.getStringArrayList(STATE_PAGE_AFTER_VALUES);
+            for (int page = 0; page < afterIds.length; page++) {
+                mPages.add(null);
+                mPageAfterIds.add(afterIds[page]);
+                mPageAfterValues.add(afterValues.get(page));
+            }
+        } else {
+            mPages.add(null);
+            mPageAfterIds.add(0L);
+            mPageAfterValues.add(null);
+        }
+        for (int page = 0; page < mPages.size(); page++) {
+            initPageLoader(page);
+        }
 
         // Create instance of our database helper class
         mDbHelper = new PetDbHelper(this);
 
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_SORT, mSort);
+        outState.putInt(STATE_GENDER_FILTER, mGenderFilter);
+        outState.putInt(STATE_MIN_WEIGHT_FILTER, mMinWeightFilter);
+        outState.putInt(STATE_MAX_WEIGHT_FILTER, mMaxWeightFilter);
+        outState.putString(STATE_SEARCH_QUERY, mSearchQuery);
+        long[] afterIds = new long[mPageAfterIds.size()];
+        for (int page = 0; page < afterIds.length; page++) {
+            afterIds[page] = mPageAfterIds.get(page);
+        }
+        outState.putLongArray(STATE_PAGE_AFTER_IDS, afterIds);
+        outState.putStringArrayList(STATE_PAGE_AFTER_VALUES, mPageAfterValues);
+    }
+
+    /**
+     * Connect a page to its loader. A loader kept from before a configuration change is reused
+     * only if it loads the same URI; one left loading another order, filter or search is
+     * restarted.
+     */
+    private void initPageLoader(int page) {
+        Bundle args = createPageArgs(mPageAfterIds.get(page), mPageAfterValues.get(page));
+        Loader<Cursor> loader = getLoaderManager().getLoader(PET_LOADER + page);
+        if (loader instanceof PageLoader && !buildPageUri(mPageAfterIds.get(page),
+                mPageAfterValues.get(page)).equals(((PageLoader) loader).getUri())) {
+            getLoaderManager().restartLoader(PET_LOADER + page, args, this);
+        } else {
+            getLoaderManager().initLoader(PET_LOADER + page, args, this);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        getContentResolver().unregisterContentObserver(mPetObserver);
+    }
+
     /**
      * Helper method to insert hardcoded pet data into the database. For debugging purposes only.
      */
@@ -127,51 +294,555 @@ public class CatalogActivity extends AppCompatActivity
         // Inflate the menu options from the res/menu/menu_catalog.xml file.
         // This adds menu items to the app bar.
         getMenuInflater().inflate(R.menu.menu_catalog, menu);
+
+        // Show the order and filters the list was restored with
+        menu.findItem(getSortMenuItemId()).setChecked(true);
+        menu.findItem(getGenderFilterMenuItemId()).setChecked(true);
+        menu.findItem(getWeightFilterMenuItemId()).setChecked(true);
+
+        // Filter the list as the user types in the search box. Search text restored with the
+        // list is put back first, so it doesn't restart the list.
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) MenuItemCompat.getActionView(searchItem);
+        searchView.setQueryHint(getString(R.string.search_hint));
+        if (!mSearchQuery.isEmpty()) {
+            MenuItemCompat.expandActionView(searchItem);
+            searchView.setQuery(mSearchQuery, false);
+            searchView.clearFocus();
+        }
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                search(query);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText);
+                return true;
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Return the id of the sort menu item for the list's order.
+     */
+    private int getSortMenuItemId() {
+        if (PetEntry.SORT_NAME.equals(mSort)) {
+            return R.id.action_sort_name;
+        } else if (PetEntry.SORT_BREED.equals(mSort)) {
+            return R.id.action_sort_breed;
+        } else if (PetEntry.SORT_WEIGHT.equals(mSort)) {
+            return R.id.action_sort_weight;
+        }
+        return R.id.action_sort_added;
+    }
+
+    /**
+     * Return the id of the gender filter menu item for the list's gender filter.
+     */
+    private int getGenderFilterMenuItemId() {
+        switch (mGenderFilter) {
+            case PetEntry.GENDER_MALE:
+                return R.id.action_filter_gender_male;
+            case PetEntry.GENDER_FEMALE:
+                return R.id.action_filter_gender_female;
+            case PetEntry.GENDER_UNKNOWN:
+                return R.id.action_filter_gender_unknown;
+            default:
+                return R.id.action_filter_gender_any;
+        }
+    }
+
+    /**
+     * Return the id of the weight filter menu item for the list's weight range.
+     */
+    private int getWeightFilterMenuItemId() {
+        if (mMinWeightFilter == PetEntry.FILTER_ANY && mMaxWeightFilter == 9) {
+            return R.id.action_filter_weight_light;
+        } else if (mMinWeightFilter == 10 && mMaxWeightFilter == 30) {
+            return R.id.action_filter_weight_medium;
+        } else if (mMinWeightFilter == 31 && mMaxWeightFilter == PetEntry.FILTER_ANY) {
+            return R.id.action_filter_weight_heavy;
+        }
+        return R.id.action_filter_weight_any;
+    }
+
+    /**
+     * Restart the list from its first page, showing only the pets that match the given text.
+     */
+    private void search(String query) {
+        String trimmedQuery = query == null ? "" : query.trim();
+        if (trimmedQuery.equals(mSearchQuery)) {
+            return;
+        }
+        mSearchQuery = trimmedQuery;
+        restartList();
+    }
+
+    /**
+     * Load the list again from its first page, after the search text, order or filters change.
+     */
+    private void restartList() {
+        dropPagesAfter(0);
+        mPageAfterIds.set(0, 0L);
+        mPageAfterValues.set(0, null);
+        getLoaderManager().restartLoader(PET_LOADER, createPageArgs(0, null), this);
+    }
+
+    /**
+     * Apply a choice from the sort or filter menus. Return false if the item isn't one of them.
+     */
+    private boolean selectSortOrFilter(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.action_sort_added:
+                mSort = null;
+                break;
+            case R.id.action_sort_name:
+                mSort = PetEntry.SORT_NAME;
+                break;
+            case R.id.action_sort_breed:
+                mSort = PetEntry.SORT_BREED;
+                break;
+            case R.id.action_sort_weight:
+                mSort = PetEntry.SORT_WEIGHT;
+                break;
+            case R.id.action_filter_gender_any:
+                mGenderFilter = PetEntry.FILTER_ANY;
+                break;
+            case R.id.action_filter_gender_male:
+                mGenderFilter = PetEntry.GENDER_MALE;
+                break;
+            case R.id.action_filter_gender_female:
+                mGenderFilter = PetEntry.GENDER_FEMALE;
+                break;
+            case R.id.action_filter_gender_unknown:
+                mGenderFilter = PetEntry.GENDER_UNKNOWN;
+                break;
+            case R.id.action_filter_weight_any:
+                mMinWeightFilter = PetEntry.FILTER_ANY;
+                mMaxWeightFilter = PetEntry.FILTER_ANY;
+                break;
+            case R.id.action_filter_weight_light:
+                mMinWeightFilter = PetEntry.FILTER_ANY;
+                mMaxWeightFilter = 9;
+                break;
+            case R.id.action_filter_weight_medium:
+                mMinWeightFilter = 10;
+                mMaxWeightFilter = 30;
+                break;
+            case R.id.action_filter_weight_heavy:
+                mMinWeightFilter = 31;
+                mMaxWeightFilter = PetEntry.FILTER_ANY;
+                break;
+            default:
+                return false;
+        }
+        item.setChecked(true);
+        restartList();
         return true;
     }
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         // User clicked on a menu option in the app bar overflow menu
+        if (selectSortOrFilter(item)) {
+            return true;
+        }
         switch (item.getItemId()) {
             // Respond to a click on the "Insert dummy data" menu option
             case R.id.action_insert_dummy_data:
                 insertDummyData();
                 return true;
+            // Respond to a click on the "Import pets" menu option
+            case R.id.action_import:
+                Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+                intent.addCategory(Intent.CATEGORY_OPENABLE);
+                intent.setType("*/*");
+                startActivityForResult(intent, REQUEST_IMPORT);
+                return true;
             // Respond to a click on the "Delete all entries" menu option
             case R.id.action_delete_all_entries:
                 // TODO: ADD ALERTDIALOG FOR USER TO CONFIRM THE DELETION OF ALL PETS
-                getContentResolver().delete(PetEntry.CONTENT_URI,null,null);
+                // Off the serial executor, so the list's diffs don't queue behind the purge
+                new DeleteAllTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
                 return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Start loading the page after the last one, unless a page is still loading or the last page
+     * was the end of the table.
+     */
+    private void loadNextPage() {
+        int lastPage = mPages.size() - 1;
+        Cursor lastCursor = mPages.get(lastPage);
+        if (lastCursor == null || lastCursor.getCount() < PAGE_SIZE) {
+            return;
+        }
+
+        long afterId = getLastId(lastCursor);
+        String afterValue = getLastValue(lastCursor);
+        mPages.add(null);
+        mPageAfterIds.add(afterId);
+        mPageAfterValues.add(afterValue);
+        getLoaderManager().initLoader(PET_LOADER + lastPage + 1, createPageArgs(afterId, afterValue),
+                this);
+    }
+
+    /**
+     * Show the empty view only when the list has 0 items.
+     */
+    private void updateEmptyView() {
+        mEmptyView.setVisibility(mCursorAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Create the loader arguments for a page starting after the given _id and sort column value.
+     */
+    private static Bundle createPageArgs(long afterId, String afterValue) {
+        Bundle args = new Bundle();
+        args.putLong(ARG_AFTER_ID, afterId);
+        args.putString(ARG_AFTER_VALUE, afterValue);
+        return args;
+    }
+
+    /**
+     * Return the _id of the last row of a page.
+     */
+    private static long getLastId(Cursor page) {
+        page.moveToLast();
+        return page.getLong(page.getColumnIndexOrThrow(PetEntry._ID));
+    }
+
+    /**
+     * Return the value in the sort column of the last row of a page, or null in _id order.
+     */
+    private String getLastValue(Cursor page) {
+        if (mSort == null) {
+            return null;
+        }
+        page.moveToLast();
+        return page.getString(page.getColumnIndexOrThrow(getSortColumn()));
+    }
+
+    /**
+     * Return the column the list is sorted by, or null in _id order.
+     */
+    private String getSortColumn() {
+        if (PetEntry.SORT_NAME.equals(mSort)) {
+            return PetEntry.COLUMN_PET_NAME;
+        } else if (PetEntry.SORT_BREED.equals(mSort)) {
+            return PetEntry.COLUMN_PET_BREED;
+        } else if (PetEntry.SORT_WEIGHT.equals(mSort)) {
+            return PetEntry.COLUMN_PET_WEIGHT;
+        }
+        return null;
+    }
+
+    /**
+     * Show every page loaded so far, up to the first one that is still loading.
+     */
+    private void showPages() {
+        ArrayList<Cursor> loaded = new ArrayList<>();
+        for (Cursor page : mPages) {
+            if (page == null) {
+                break;
+            }
+            loaded.add(page);
+        }
+
+        // The adapter only reads the pages it hasn't seen before
+        mCursorAdapter.swapPages(loaded);
+    }
+
+    /**
+     * Reload the pages affected by a change to the pets. In _id order, pages hold consecutive _id
+     * ranges, so a change to a single pet only touches the page whose range holds its _id, and a
+     * new pet always lands in the last page. Any other change, or any change in another order,
+     * reloads every page.
+     */
+    private void onPetsChanged(Uri changeUri) {
+        long id = PetEntry.getChangedId(changeUri);
+        if (id == -1 || mSort != null) {
+            for (int page = 0; page < mPages.size(); page++) {
+                reloadPage(page);
+            }
+            return;
+        }
+
+        // Find the last page starting before the changed pet
+        int page = mPageAfterIds.size() - 1;
+        while (page > 0 && mPageAfterIds.get(page) >= id) {
+            page--;
+        }
+        reloadPage(page);
+    }
+
+    /**
+     * Reload one page of the list in the background.
+     */
+    private void reloadPage(int page) {
+        Loader<Cursor> loader = getLoaderManager().getLoader(PET_LOADER + page);
+        if (loader instanceof PageLoader) {
+            ((PageLoader) loader).reload();
+        }
+    }
+
+    /**
+     * Drop every page after the given one, and stop their loaders.
+     */
+    private void dropPagesAfter(int page) {
+        for (int i = mPages.size() - 1; i > page; i--) {
+            mPages.remove(i);
+            mPageAfterIds.remove(i);
+            mPageAfterValues.remove(i);
+            getLoaderManager().destroyLoader(PET_LOADER + i);
+        }
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode == REQUEST_IMPORT) {
+            if (resultCode == RESULT_OK && data != null && data.getData() != null) {
+                // Off the serial executor, so the list's diffs don't queue behind the import
+                new ImportTask().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, data.getData());
+            }
+            return;
+        }
+        super.onActivityResult(requestCode, resultCode, data);
+    }
+
+    /**
+     * Imports a CSV or JSON file of pets in the background, showing progress as chunks commit.
+     */
+    private class ImportTask extends AsyncTask<Uri, PetImporter.Progress, PetImporter.Progress> {
+
+        private ProgressDialog mProgressDialog;
+
+        @Override
+        protected void onPreExecute() {
+            mProgressDialog = new ProgressDialog(CatalogActivity.this);
+            mProgressDialog.setMessage(getString(R.string.import_in_progress));
+            mProgressDialog.setCancelable(false);
+            mProgressDialog.show();
+        }
+
+        @Override
+        protected PetImporter.Progress doInBackground(Uri... uris) {
+            PetImporter importer = new PetImporter(getContentResolver(), PetImporter.DEFAULT_CHUNK_SIZE);
+            PetImporter.ProgressListener listener = new PetImporter.ProgressListener() {
+                @Override
+                public void onProgress(PetImporter.Progress progress) {
+                    publishProgress(progress);
+                }
+            };
+
+            // Tell JSON from CSV by the file's type or name
+            Uri uri = uris[0];
+            String type = getContentResolver().getType(uri);
+            boolean json = (type != null && type.contains("json"))
+                    || (uri.getLastPathSegment() != null && uri.getLastPathSegment().endsWith(".json"));
+
+            InputStream in = null;
+            try {
+                in = getContentResolver().openInputStream(uri);
+                if (in == null) {
+                    return null;
+                }
+                return json ? importer.importJson(in, listener) : importer.importCsv(in, listener);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Failed to import pets from " + uri, e);
+                return null;
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        // Nothing more to read anyway
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected void onProgressUpdate(PetImporter.Progress... progress) {
+            mProgressDialog.setMessage(getString(R.string.import_progress,
+                    progress[0].rowsImported, (int) progress[0].getRowsPerSecond()));
+        }
+
+        @Override
+        protected void onPostExecute(PetImporter.Progress progress) {
+            mProgressDialog.dismiss();
+            if (progress == null) {
+                Toast.makeText(CatalogActivity.this, R.string.message_error_import_failed, Toast.LENGTH_LONG).show();
+            } else {
+                Toast.makeText(CatalogActivity.this, getString(R.string.message_import_finished,
+                        progress.rowsImported, progress.chunksFailed), Toast.LENGTH_LONG).show();
+            }
+        }
+    }
+
+    /**
+     * Deletes every pet in the background, one chunk at a time, showing progress as it goes.
+     * Each chunk is its own short write, so the list and other readers stay responsive.
+     */
+    private class DeleteAllTask extends AsyncTask<Void, Integer, Integer> {
+
+        private ProgressDialog mProgressDialog;
+
+        private int mTotal;
+
+        @Override
+        protected void onPreExecute() {
+            mProgressDialog = new ProgressDialog(CatalogActivity.this);
+            mProgressDialog.setMessage(getString(R.string.delete_all_in_progress));
+            mProgressDialog.setCancelable(false);
+            mProgressDialog.show();
+        }
+
+        @Override
+        protected Integer doInBackground(Void... voids) {
+            // Read how many pets there are to delete from the shelter statistics
+            Cursor stats = getContentResolver().query(PetStatsEntry.CONTENT_URI, null, null, null, null);
+            if (stats != null) {
+                try {
+                    if (stats.moveToFirst()) {
+                        mTotal = stats.getInt(stats.getColumnIndexOrThrow(PetStatsEntry.COLUMN_COUNT));
+                    }
+                } finally {
+                    stats.close();
+                }
+            }
+
+            Uri chunkUri = PetEntry.buildDeleteChunkUri(DELETE_CHUNK_SIZE);
+            int deleted = 0;
+            int deletedInChunk;
+            while ((deletedInChunk = getContentResolver().delete(chunkUri, null, null)) > 0) {
+                deleted += deletedInChunk;
+                publishProgress(deleted);
+            }
+            return deleted;
+        }
+
+        @Override
+        protected void onProgressUpdate(Integer... deleted) {
+            mProgressDialog.setMessage(getString(R.string.delete_all_progress,
+                    deleted[0], Math.max(mTotal, deleted[0])));
+        }
+
+        @Override
+        protected void onPostExecute(Integer deleted) {
+            mProgressDialog.dismiss();
+            Toast.makeText(CatalogActivity.this,
+                    getString(R.string.message_deleted_all, deleted), Toast.LENGTH_SHORT).show();
+        }
+    }
+
     @Override
     public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
-        // Projection with table columns to return
-        String[] projection = new String[] {
-                PetEntry._ID,
-                PetEntry.COLUMN_PET_NAME,
-                PetEntry.COLUMN_PET_BREED
-        };
-
-        return new CursorLoader(this,
-                PetEntry.CONTENT_URI,
+        // Projection with table columns to return. Weight is only needed to page in weight order.
+        String[] projection;
+        if (PetEntry.SORT_WEIGHT.equals(mSort)) {
+            projection = new String[] {
+                    PetEntry._ID,
+                    PetEntry.COLUMN_PET_NAME,
+                    PetEntry.COLUMN_PET_BREED,
+                    PetEntry.COLUMN_PET_WEIGHT
+            };
+        } else {
+            projection = new String[] {
+                    PetEntry._ID,
+                    PetEntry.COLUMN_PET_NAME,
+                    PetEntry.COLUMN_PET_BREED
+            };
+        }
+
+        long afterId = bundle != null ? bundle.getLong(ARG_AFTER_ID) : 0;
+        String afterValue = bundle != null ? bundle.getString(ARG_AFTER_VALUE) : null;
+
+        return new PageLoader(this,
+                buildPageUri(afterId, afterValue),
                 projection,
                 null,
                 null,
                 null);
     }
 
+    /**
+     * Return the URI for the page starting after the given _id and sort column value.
+     */
+    private Uri buildPageUri(long afterId, String afterValue) {
+        // Page through the search results if there is search text, or through every pet if not,
+        // in the chosen order and with the chosen filters
+        Uri listUri = TextUtils.isEmpty(mSearchQuery)
+                ? PetEntry.CONTENT_URI
+                : PetEntry.buildSearchUri(mSearchQuery);
+        listUri = PetEntry.buildFilterUri(listUri, mSort, mGenderFilter, mMinWeightFilter,
+                mMaxWeightFilter);
+        return PetEntry.buildPageUri(listUri, PAGE_SIZE, afterId, afterValue);
+    }
+
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
-        mCursorAdapter.swapCursor(cursor);
+        int page = loader.getId() - PET_LOADER;
+        if (page >= mPages.size()) {
+            return;
+        }
+        mPages.set(page, cursor);
+
+        if (cursor.getCount() < PAGE_SIZE) {
+            // This page is now the end of the table, so any later pages are stale
+            dropPagesAfter(page);
+        } else if (page + 1 < mPages.size()) {
+            // A reload may have moved this page's last row, so re-anchor the next page on it
+            long lastId = getLastId(cursor);
+            String lastValue = getLastValue(cursor);
+            if (lastId != mPageAfterIds.get(page + 1)
+                    || !TextUtils.equals(lastValue, mPageAfterValues.get(page + 1))) {
+                mPageAfterIds.set(page + 1, lastId);
+                mPageAfterValues.set(page + 1, lastValue);
+                getLoaderManager().restartLoader(PET_LOADER + page + 1,
+                        createPageArgs(lastId, lastValue), this);
+            }
+        }
+
+        showPages();
     }
 
     @Override
     public void onLoaderReset(Loader<Cursor> loader) {
         // Nullify the old cursor to prevent memory leaks
-        mCursorAdapter.swapCursor(null);
+        int page = loader.getId() - PET_LOADER;
+        if (page < mPages.size()) {
+            mPages.set(page, null);
+        }
+        showPages();
+    }
+
+    /**
+     * {@link CursorLoader} for one page of the list. It ignores change notifications on its own
+     * cursor; the activity decides which pages a change affects and reloads just those.
+     */
+    private static class PageLoader extends CursorLoader {
+
+        PageLoader(Context context, Uri uri, String[] projection, String selection,
+                   String[] selectionArgs, String sortOrder) {
+            super(context, uri, projection, selection, selectionArgs, sortOrder);
+        }
+
+        @Override
+        public void onContentChanged() {
+        }
+
+        /**
+         * Load the page again, or as soon as the loader is started if it's stopped.
+         */
+        void reload() {
+            super.onContentChanged();
+        }
     }
-}
\ No newline at end of file
+}
@@ -17,7 +17,8 @@ package com.example.android.pets;
 
 import android.app.AlertDialog;
 import android.app.LoaderManager;
-import android.content.ContentValues;
+import android.content.ContentUris;
+import android.content.Context;
 import android.content.CursorLoader;
 import android.content.DialogInterface;
 import android.content.Loader;
@@ -38,6 +39,7 @@ import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.Toast;
 
+import com.example.android.pets.data.Pet;
 import com.example.android.pets.data.PetContract.PetEntry;
 
 /**
@@ -213,37 +215,47 @@ public class EditorActivity extends AppCompatActivity
             }
         }
 
-        // Create new ContentValues object and associate user input with relevant database table columns
-        ContentValues values = new ContentValues();
-        values.put(PetEntry.COLUMN_PET_NAME, name);
-        values.put(PetEntry.COLUMN_PET_BREED, breed);
-        // Check whether a weight has been logged
-        if (weight != -1) {
-            values.put(PetEntry.COLUMN_PET_WEIGHT, weight);
+        // Create a new Pet from the user input, checking it by the same rules as the provider
+        long id = mPassedUri == null ? Pet.NO_ID : ContentUris.parseId(mPassedUri);
+        Pet pet;
+        try {
+            pet = new Pet(id, name, breed, gender, weight);
+        } catch (IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Invalid pet data", e);
+            Toast.makeText(this, mPassedUri == null ? R.string.message_error_failed_to_add_pet
+                    : R.string.message_error_failed_to_edit_pet, Toast.LENGTH_SHORT).show();
+            return;
         }
-        values.put(PetEntry.COLUMN_PET_GENDER, gender);
 
         // Check whether we are saving a new pet or edited data for an existing pet.
-        // Insert a new entry or update an existing entry, accordingly.
+        // Insert a new entry or update an existing entry, accordingly. The write runs in the
+        // background, so the editor can close straight away.
+        final Context appContext = getApplicationContext();
+        PetWriteQueue writeQueue = PetWriteQueue.getInstance(this);
         if (mPassedUri == null) { // Inserting a new pet entry
-            // Call ContentResolver (and thus Content Provider) to insert entry into the database.
-            Uri newRowId = getContentResolver().insert(PetEntry.CONTENT_URI, values);
-
-            // Show a toast confirming whether or not pet data was successfully added to the database
-            if (newRowId != null) {
-                Toast.makeText(this, R.string.message_pet_added, Toast.LENGTH_SHORT);
-            } else {
-                Toast.makeText(this, R.string.message_error_failed_to_add_pet, Toast.LENGTH_SHORT);
-            }
+            writeQueue.insert(pet, new PetWriteQueue.Callback() {
+                @Override
+                public void onWriteComplete(Uri uri, boolean success) {
+                    // Show a toast confirming whether or not pet data was successfully added to the database
+                    if (success) {
+                        Toast.makeText(appContext, R.string.message_pet_added, Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(appContext, R.string.message_error_failed_to_add_pet, Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         } else { // Updating an existing pet entry at the URI passed into the EditorActivity
-            int numRowsUpdated = getContentResolver().update(mPassedUri, values, null, null);
-
-            // Show a toast confirming whether or not pet data was successfully edited
-            if (numRowsUpdated >= 1) {
-                Toast.makeText(this, R.string.message_pet_edited, Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, R.string.message_error_failed_to_edit_pet, Toast.LENGTH_SHORT).show();
-            }
+            writeQueue.update(pet, new PetWriteQueue.Callback() {
+                @Override
+                public void onWriteComplete(Uri uri, boolean success) {
+                    // Show a toast confirming whether or not pet data was successfully edited
+                    if (success) {
+                        Toast.makeText(appContext, R.string.message_pet_edited, Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(appContext, R.string.message_error_failed_to_edit_pet, Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         }
 
     }
@@ -389,7 +401,15 @@ public class EditorActivity extends AppCompatActivity
 
     @Override
     public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
-        return new CursorLoader(this, mPassedUri, null, null, null, null);
+        // Projection with only the columns the editor shows
+        String[] projection = new String[] {
+                PetEntry.COLUMN_PET_NAME,
+                PetEntry.COLUMN_PET_BREED,
+                PetEntry.COLUMN_PET_GENDER,
+                PetEntry.COLUMN_PET_WEIGHT
+        };
+
+        return new CursorLoader(this, mPassedUri, projection, null, null, null);
     }
 
     @Override
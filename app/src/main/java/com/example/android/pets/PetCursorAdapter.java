@@ -2,75 +2,266 @@ package com.example.android.pets;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.os.AsyncTask;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.CursorAdapter;
 import android.widget.TextView;
 
 import com.example.android.pets.data.PetContract;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+
 /**
- * {@link PetCursorAdapter} is an adapter for a list or grid view
+ * {@link PetCursorAdapter} is an adapter for a {@link RecyclerView}
  * that uses a {@link Cursor} of pet data as its data source. This adapter knows
  * how to create list items for each row of pet data in the {@link Cursor}.
+ *
+ * Each new page cursor is read once into a row snapshot, and the difference from the rows on
+ * screen is computed on a background thread, so only the rows that actually changed are rebound.
  */
-public class PetCursorAdapter extends CursorAdapter {
+public class PetCursorAdapter extends RecyclerView.Adapter<PetCursorAdapter.PetViewHolder> {
+
+    /**
+     * Callback for when the user clicks on a pet in the list.
+     */
+    public interface OnPetClickListener {
+        void onPetClick(long id);
+    }
+
+    private final Context mContext;
+
+    private final OnPetClickListener mListener;
+
+    /** Rows currently shown in the list */
+    private PetRows mRows = PetRows.EMPTY;
+
+    /** Rows read from each page last swapped in, so a page is only read once */
+    private IdentityHashMap<Cursor, PetRows> mPageRows = new IdentityHashMap<>();
+
+    /** Incremented on every swap, so an out of date diff is never applied */
+    private int mGeneration;
 
     /**
      * Constructs a new {@link PetCursorAdapter}.
      *
-     * @param context The context
-     * @param c       The cursor from which to get the data.
+     * @param context  The context
+     * @param listener Called when the user clicks on a pet
      */
-    public PetCursorAdapter(Context context, Cursor c) {
-        super(context, c, 0 /* flags */);
+    public PetCursorAdapter(Context context, OnPetClickListener listener) {
+        mContext = context;
+        mListener = listener;
+        setHasStableIds(true);
     }
 
     /**
-     * Makes a new blank list item view. No data is set (or bound) to the views yet.
+     * Show the pets in the given pages, in order. Only pages that weren't shown before are read,
+     * so loading one more page costs a read of that page, not of the whole list. The pages are
+     * read straight away, so the caller remains free to close them afterwards.
      *
-     * @param context app context
-     * @param cursor  The cursor from which to get the data. The cursor is already
-     *                moved to the correct position.
-     * @param parent  The parent to which the new view is attached to
-     * @return the newly created list item view.
+     * @param pages The cursors from which to get the data, or an empty list to empty the list.
      */
-    @Override
-    public View newView(Context context, Cursor cursor, ViewGroup parent) {
-        // Return the list item view (instead of null)
-        return LayoutInflater.from(context).inflate(R.layout.list_item,parent,false);
+    public void swapPages(List<Cursor> pages) {
+        final PetRows oldRows = mRows;
+        IdentityHashMap<Cursor, PetRows> pageRows = new IdentityHashMap<>();
+        PetRows[] parts = new PetRows[pages.size()];
+        for (int i = 0; i < parts.length; i++) {
+            Cursor page = pages.get(i);
+            PetRows rows = mPageRows.get(page);
+            if (rows == null) {
+                rows = PetRows.from(page);
+            }
+            pageRows.put(page, rows);
+            parts[i] = rows;
+        }
+        mPageRows = pageRows;
+        final PetRows newRows = PetRows.concat(parts);
+        final int generation = ++mGeneration;
+
+        new AsyncTask<Void, Void, DiffUtil.DiffResult>() {
+            @Override
+            protected DiffUtil.DiffResult doInBackground(Void... voids) {
+                return DiffUtil.calculateDiff(new PetDiffCallback(oldRows, newRows), false);
+            }
+
+            @Override
+            protected void onPostExecute(DiffUtil.DiffResult diffResult) {
+                // A newer set of pages has been swapped in since, and will be diffed against mRows
+                if (generation != mGeneration) {
+                    return;
+                }
+                mRows = newRows;
+                diffResult.dispatchUpdatesTo(PetCursorAdapter.this);
+            }
+        }.execute();
     }
 
     /**
-     * This method binds the pet data (in the current row pointed to by cursor) to the given
-     * list item layout. For example, the name for the current pet can be set on the name TextView
-     * in the list item layout.
-     *
-     * @param view    Existing view, returned earlier by newView() method
-     * @param context app context
-     * @param cursor  The cursor from which to get the data. The cursor is already moved to the
-     *                correct row.
+     * Makes a new blank list item view holder. No data is set (or bound) to the views yet.
      */
     @Override
-    public void bindView(View view, Context context, Cursor cursor) {
-        // Find relevant views and store reference
-        TextView tvName = (TextView) view.findViewById(R.id.name);
-        TextView tvSummmary = (TextView) view.findViewById(R.id.summary);
-
-        // Get data from cursor
-        String cName = cursor.getString(cursor.getColumnIndexOrThrow(PetContract.PetEntry.COLUMN_PET_NAME));
-        String cBreed = cursor.getString(cursor.getColumnIndexOrThrow(PetContract.PetEntry.COLUMN_PET_BREED));
+    public PetViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(mContext).inflate(R.layout.list_item, parent, false);
+        return new PetViewHolder(view);
+    }
 
+    /**
+     * This method binds the pet data at the given position to the given list item view holder.
+     * For example, the name for the current pet can be set on the name TextView.
+     */
+    @Override
+    public void onBindViewHolder(PetViewHolder holder, int position) {
         // Set data on the textviews
-        tvName.setText(cName);
+        holder.mNameTextView.setText(mRows.mNames[position]);
 
         // Check whether breed has been set
-        if (!TextUtils.isEmpty(cBreed)) {
-            tvSummmary.setText(cBreed);
+        String breed = mRows.mBreeds[position];
+        if (!TextUtils.isEmpty(breed)) {
+            holder.mSummaryTextView.setText(breed);
         } else {
-            tvSummmary.setText(R.string.unknown_breed);
+            holder.mSummaryTextView.setText(R.string.unknown_breed);
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return mRows.mIds.length;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mRows.mIds[position];
+    }
+
+    /**
+     * Holds the views of one list item, so they are only looked up when the item is created.
+     */
+    class PetViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+
+        final TextView mNameTextView;
+
+        final TextView mSummaryTextView;
+
+        PetViewHolder(View itemView) {
+            super(itemView);
+            mNameTextView = (TextView) itemView.findViewById(R.id.name);
+            mSummaryTextView = (TextView) itemView.findViewById(R.id.summary);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            if (getAdapterPosition() != RecyclerView.NO_POSITION) {
+                mListener.onPetClick(getItemId());
+            }
+        }
+    }
+
+    /**
+     * Immutable snapshot of the columns the list shows, read from a cursor in one pass.
+     */
+    private static class PetRows {
+
+        static final PetRows EMPTY = new PetRows(new long[0], new String[0], new String[0]);
+
+        final long[] mIds;
+
+        final String[] mNames;
+
+        final String[] mBreeds;
+
+        PetRows(long[] ids, String[] names, String[] breeds) {
+            mIds = ids;
+            mNames = names;
+            mBreeds = breeds;
+        }
+
+        static PetRows from(Cursor cursor) {
+            if (cursor == null || cursor.getCount() == 0) {
+                return EMPTY;
+            }
+
+            // Resolve the column indexes once for the whole cursor
+            int idColumnIndex = cursor.getColumnIndexOrThrow(PetContract.PetEntry._ID);
+            int nameColumnIndex = cursor.getColumnIndexOrThrow(PetContract.PetEntry.COLUMN_PET_NAME);
+            int breedColumnIndex = cursor.getColumnIndexOrThrow(PetContract.PetEntry.COLUMN_PET_BREED);
+
+            int count = cursor.getCount();
+            long[] ids = new long[count];
+            String[] names = new String[count];
+            String[] breeds = new String[count];
+            cursor.moveToPosition(-1);
+            for (int i = 0; i < count && cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(idColumnIndex);
+                names[i] = cursor.getString(nameColumnIndex);
+                breeds[i] = cursor.getString(breedColumnIndex);
+            }
+            return new PetRows(ids, names, breeds);
+        }
+
+        /**
+         * Join snapshots end to end.
+         */
+        static PetRows concat(PetRows[] parts) {
+            if (parts.length == 1) {
+                return parts[0];
+            }
+            int count = 0;
+            for (PetRows part : parts) {
+                count += part.mIds.length;
+            }
+            long[] ids = new long[count];
+            String[] names = new String[count];
+            String[] breeds = new String[count];
+            int start = 0;
+            for (PetRows part : parts) {
+                int length = part.mIds.length;
+                System.arraycopy(part.mIds, 0, ids, start, length);
+                System.arraycopy(part.mNames, 0, names, start, length);
+                System.arraycopy(part.mBreeds, 0, breeds, start, length);
+                start += length;
+            }
+            return new PetRows(ids, names, breeds);
+        }
+    }
+
+    /**
+     * Compares two row snapshots by pet _id, and then by the columns shown in the list.
+     */
+    private static class PetDiffCallback extends DiffUtil.Callback {
+
+        private final PetRows mOldRows;
+
+        private final PetRows mNewRows;
+
+        PetDiffCallback(PetRows oldRows, PetRows newRows) {
+            mOldRows = oldRows;
+            mNewRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldRows.mIds.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewRows.mIds.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldRows.mIds[oldItemPosition] == mNewRows.mIds[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return TextUtils.equals(mOldRows.mNames[oldItemPosition], mNewRows.mNames[newItemPosition])
+                    && TextUtils.equals(mOldRows.mBreeds[oldItemPosition], mNewRows.mBreeds[newItemPosition]);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package com.example.android.pets;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.SQLException;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.android.pets.data.Pet;
+import com.example.android.pets.data.PetContract.PetEntry;
+import com.example.android.pets.data.PetStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs pet writes on a single background thread, so the UI never waits for the database.
+ *
+ * Writes run one at a time, in the order they were made, through the typed {@link PetStore}.
+ * An update to a pet that already has an update waiting replaces the waiting one, so a burst of
+ * edits to the same pet costs one database write. Results are reported back on the main thread.
+ */
+public class PetWriteQueue {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = PetWriteQueue.class.getSimpleName();
+
+    /**
+     * Callback for when a write has finished. Called on the main thread.
+     */
+    public interface Callback {
+        /**
+         * @param uri     URI of the pet written, or null if an insert failed
+         * @param success whether the write changed the database
+         */
+        void onWriteComplete(Uri uri, boolean success);
+    }
+
+    private static PetWriteQueue sInstance;
+
+    private final PetStore mPetStore;
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Updates that haven't started yet, by pet id. Guarded by itself.
+     */
+    private final HashMap<Long, PendingWrite> mPendingUpdates = new HashMap<>();
+
+    /**
+     * Number of writes run, and the total time they took, all of which was kept off the main
+     * thread. Only touched on the write thread.
+     */
+    private int mWriteCount;
+    private long mWriteNanos;
+
+    private PetWriteQueue(Context context) {
+        mPetStore = PetStore.getInstance(context);
+    }
+
+    /**
+     * Return the app's write queue.
+     */
+    public static synchronized PetWriteQueue getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PetWriteQueue(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Insert a new pet in the background.
+     */
+    public void insert(Pet pet, Callback callback) {
+        mExecutor.execute(new PendingWrite(false, pet, callback));
+    }
+
+    /**
+     * Update an existing pet in the background. If an update to the same pet is still waiting
+     * to run, the new pet replaces it instead of queueing another write.
+     */
+    public void update(Pet pet, Callback callback) {
+        PendingWrite write;
+        synchronized (mPendingUpdates) {
+            write = mPendingUpdates.get(pet.id);
+            if (write != null) {
+                write.merge(pet, callback);
+                return;
+            }
+            write = new PendingWrite(true, pet, callback);
+            mPendingUpdates.put(pet.id, write);
+        }
+        mExecutor.execute(write);
+    }
+
+    /**
+     * One queued insert or update, and everyone waiting for it.
+     */
+    private class PendingWrite implements Runnable {
+
+        /** Whether to update an existing pet, rather than insert a new one */
+        private final boolean mUpdate;
+
+        /** Pet to write. Guarded by mPendingUpdates until the write starts. */
+        private Pet mPet;
+
+        private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+
+        PendingWrite(boolean update, Pet pet, Callback callback) {
+            mUpdate = update;
+            mPet = pet;
+            mCallbacks.add(callback);
+        }
+
+        /**
+         * Replace this update with a later one to the same pet. Called with mPendingUpdates held.
+         */
+        void merge(Pet pet, Callback callback) {
+            mPet = pet;
+            mCallbacks.add(callback);
+        }
+
+        @Override
+        public void run() {
+            // Once started, this write takes no more merges
+            Pet pet;
+            synchronized (mPendingUpdates) {
+                if (mUpdate) {
+                    mPendingUpdates.remove(mPet.id);
+                }
+                pet = mPet;
+            }
+
+            long startNanos = System.nanoTime();
+            Uri resultUri = null;
+            boolean success = false;
+            try {
+                if (!mUpdate) {
+                    long id = mPetStore.insert(pet);
+                    success = id != -1;
+                    if (success) {
+                        resultUri = ContentUris.withAppendedId(PetEntry.CONTENT_URI, id);
+                    }
+                } else {
+                    resultUri = ContentUris.withAppendedId(PetEntry.CONTENT_URI, pet.id);
+                    success = mPetStore.update(pet);
+                }
+            } catch (IllegalArgumentException e) {
+                Log.e(LOG_TAG, "Failed to write pet " + pet, e);
+            } catch (SQLException e) {
+                // A full disk, a broken constraint or a locked database. Report it as a failed
+                // write, rather than letting it take down the write thread and the app.
+                Log.e(LOG_TAG, "Database error writing pet " + pet, e);
+            }
+            long writeNanos = System.nanoTime() - startNanos;
+
+            mWriteCount++;
+            mWriteNanos += writeNanos;
+            Log.d(LOG_TAG, "Write " + mWriteCount + " (" + mCallbacks.size() + " coalesced) took "
+                    + TimeUnit.NANOSECONDS.toMillis(writeNanos) + " ms off the main thread; "
+                    + TimeUnit.NANOSECONDS.toMillis(mWriteNanos) + " ms in total");
+
+            // Report back on the main thread
+            final Uri finalUri = resultUri;
+            final boolean finalSuccess = success;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (Callback callback : mCallbacks) {
+                        callback.onWriteComplete(finalUri, finalSuccess);
+                    }
+                }
+            });
+        }
+    }
+}
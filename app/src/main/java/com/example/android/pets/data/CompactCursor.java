@@ -0,0 +1,266 @@
+package com.example.android.pets.data;
+
+import android.database.AbstractCursor;
+import android.database.CursorWindow;
+
+import java.util.Arrays;
+
+/**
+ * An in-memory cursor that stores each column in a primitive array of its declared type, for
+ * results {@link PetProvider} serves from memory. Unlike MatrixCursor, which keeps every value
+ * as a boxed Object, numbers stay unboxed and strings are kept by reference, so a cursor over
+ * cached rows shares their strings instead of copying them.
+ *
+ * Rows are added with {@link #addRow()} and then filled in column by column; a value that isn't
+ * set is null. When the cursor crosses a process boundary, {@link #fillWindow} writes the
+ * arrays straight into the CursorWindow without boxing.
+ */
+class CompactCursor extends AbstractCursor {
+
+    /** Column types. Values are stored as long, double or String. */
+    static final int TYPE_LONG = FIELD_TYPE_INTEGER;
+    static final int TYPE_DOUBLE = FIELD_TYPE_FLOAT;
+    static final int TYPE_STRING = FIELD_TYPE_STRING;
+
+    private final String[] mColumnNames;
+
+    private final int[] mColumnTypes;
+
+    /** Values of each column, by row. Only the array for the column's type is allocated. */
+    private long[][] mLongs;
+    private double[][] mDoubles;
+    private String[][] mStrings;
+
+    /** Whether each value, by row then column, has been set */
+    private boolean[] mSet;
+
+    private int mRowCount;
+
+    /**
+     * Constructs a new, empty {@link CompactCursor}.
+     *
+     * @param columnNames names of the columns
+     * @param columnTypes type of each column: {@link #TYPE_LONG}, {@link #TYPE_DOUBLE} or
+     *                    {@link #TYPE_STRING}
+     * @param capacity    number of rows to make room for up front
+     */
+    CompactCursor(String[] columnNames, int[] columnTypes, int capacity) {
+        if (columnNames.length != columnTypes.length) {
+            throw new IllegalArgumentException("Every column needs a type");
+        }
+        mColumnNames = columnNames;
+        mColumnTypes = columnTypes;
+        capacity = Math.max(capacity, 1);
+
+        mLongs = new long[columnNames.length][];
+        mDoubles = new double[columnNames.length][];
+        mStrings = new String[columnNames.length][];
+        for (int column = 0; column < columnTypes.length; column++) {
+            switch (columnTypes[column]) {
+                case TYPE_LONG:
+                    mLongs[column] = new long[capacity];
+                    break;
+                case TYPE_DOUBLE:
+                    mDoubles[column] = new double[capacity];
+                    break;
+                case TYPE_STRING:
+                    mStrings[column] = new String[capacity];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column type " + columnTypes[column]);
+            }
+        }
+        mSet = new boolean[capacity * columnNames.length];
+    }
+
+    /**
+     * Add a row of nulls, and return its position for the set methods.
+     */
+    int addRow() {
+        int capacity = mSet.length / mColumnNames.length;
+        if (mRowCount == capacity) {
+            int newCapacity = capacity * 2;
+            for (int column = 0; column < mColumnNames.length; column++) {
+                if (mLongs[column] != null) {
+                    mLongs[column] = Arrays.copyOf(mLongs[column], newCapacity);
+                } else if (mDoubles[column] != null) {
+                    mDoubles[column] = Arrays.copyOf(mDoubles[column], newCapacity);
+                } else {
+                    mStrings[column] = Arrays.copyOf(mStrings[column], newCapacity);
+                }
+            }
+            mSet = Arrays.copyOf(mSet, newCapacity * mColumnNames.length);
+        }
+        return mRowCount++;
+    }
+
+    void setLong(int row, int column, long value) {
+        checkType(column, TYPE_LONG);
+        mLongs[column][row] = value;
+        mSet[row * mColumnNames.length + column] = true;
+    }
+
+    void setDouble(int row, int column, double value) {
+        checkType(column, TYPE_DOUBLE);
+        mDoubles[column][row] = value;
+        mSet[row * mColumnNames.length + column] = true;
+    }
+
+    /**
+     * Set a string value. The string is kept by reference, not copied; a null leaves it null.
+     */
+    void setString(int row, int column, String value) {
+        checkType(column, TYPE_STRING);
+        mStrings[column][row] = value;
+        mSet[row * mColumnNames.length + column] = value != null;
+    }
+
+    private void checkType(int column, int type) {
+        if (mColumnTypes[column] != type) {
+            throw new IllegalArgumentException("Column " + mColumnNames[column] + " has type " +
+                    mColumnTypes[column]);
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return mRowCount;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumnNames;
+    }
+
+    @Override
+    public int getType(int column) {
+        return isNull(column) ? FIELD_TYPE_NULL : mColumnTypes[column];
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return !mSet[getRow() * mColumnNames.length + column];
+    }
+
+    @Override
+    public String getString(int column) {
+        if (isNull(column)) {
+            return null;
+        }
+        int row = getRow();
+        switch (mColumnTypes[column]) {
+            case TYPE_LONG:
+                return Long.toString(mLongs[column][row]);
+            case TYPE_DOUBLE:
+                return Double.toString(mDoubles[column][row]);
+            default:
+                return mStrings[column][row];
+        }
+    }
+
+    @Override
+    public long getLong(int column) {
+        if (isNull(column)) {
+            return 0;
+        }
+        int row = getRow();
+        switch (mColumnTypes[column]) {
+            case TYPE_LONG:
+                return mLongs[column][row];
+            case TYPE_DOUBLE:
+                return (long) mDoubles[column][row];
+            default:
+                return Long.parseLong(mStrings[column][row]);
+        }
+    }
+
+    @Override
+    public double getDouble(int column) {
+        if (isNull(column)) {
+            return 0;
+        }
+        int row = getRow();
+        switch (mColumnTypes[column]) {
+            case TYPE_LONG:
+                return mLongs[column][row];
+            case TYPE_DOUBLE:
+                return mDoubles[column][row];
+            default:
+                return Double.parseDouble(mStrings[column][row]);
+        }
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return (float) getDouble(column);
+    }
+
+    /**
+     * Copy rows into the window, from the given position until the window is full, writing
+     * each value from its primitive array.
+     */
+    @Override
+    public void fillWindow(int position, CursorWindow window) {
+        if (position < 0 || position >= mRowCount) {
+            return;
+        }
+        window.acquireReference();
+        try {
+            window.clear();
+            window.setStartPosition(position);
+            window.setNumColumns(mColumnNames.length);
+            for (int row = position; row < mRowCount; row++) {
+                if (!window.allocRow()) {
+                    break;
+                }
+                if (!putRow(window, row)) {
+                    // The row didn't fit, so leave it for the next window
+                    window.freeLastRow();
+                    break;
+                }
+            }
+        } finally {
+            window.releaseReference();
+        }
+    }
+
+    /**
+     * Write one row into the last row allocated in the window. Return false if it doesn't fit.
+     */
+    private boolean putRow(CursorWindow window, int row) {
+        for (int column = 0; column < mColumnNames.length; column++) {
+            boolean fitted;
+            if (!mSet[row * mColumnNames.length + column]) {
+                fitted = window.putNull(row, column);
+            } else if (mColumnTypes[column] == TYPE_LONG) {
+                fitted = window.putLong(mLongs[column][row], row, column);
+            } else if (mColumnTypes[column] == TYPE_DOUBLE) {
+                fitted = window.putDouble(mDoubles[column][row], row, column);
+            } else {
+                fitted = window.putString(mStrings[column][row], row, column);
+            }
+            if (!fitted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getRow() {
+        int row = getPosition();
+        if (row < 0 || row >= mRowCount) {
+            throw new IllegalStateException("Cursor is not on a row: " + row);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.android.pets.data;
+
+import com.example.android.pets.data.PetContract.PetEntry;
+
+/**
+ * One pet, as stored in the pets table, for the typed {@link PetStore} API. Fields are
+ * primitives where the table's columns are, so reading and writing pets through it never boxes.
+ *
+ * The validation rules here are the ones {@link PetProvider} applies to every write, whichever
+ * API it comes through.
+ */
+public class Pet {
+
+    /** Id of a pet that hasn't been saved yet */
+    public static final long NO_ID = -1;
+
+    /** Row id, or {@link #NO_ID} */
+    public final long id;
+
+    /** Name of the pet. Never null. */
+    public final String name;
+
+    /** Breed of the pet, or null if it isn't known */
+    public final String breed;
+
+    /** One of the PetEntry GENDER_ constants */
+    public final int gender;
+
+    /** Weight in kg. Never negative. */
+    public final int weight;
+
+    /**
+     * Constructs a new {@link Pet}. Throws an {@link IllegalArgumentException} if the values
+     * don't describe a valid pet.
+     */
+    public Pet(long id, String name, String breed, int gender, int weight) {
+        checkName(name);
+        checkGender(gender);
+        checkWeight(weight);
+        this.id = id;
+        this.name = name;
+        this.breed = breed;
+        this.gender = gender;
+        this.weight = weight;
+    }
+
+    /**
+     * Return a copy of this pet with the given row id.
+     */
+    public Pet withId(long id) {
+        return new Pet(id, name, breed, gender, weight);
+    }
+
+    /**
+     * Check that a name is valid for a pet.
+     */
+    static void checkName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Pet requires a name");
+        }
+    }
+
+    /**
+     * Check that a gender is valid for a pet.
+     */
+    static void checkGender(int gender) {
+        if (!PetEntry.isValidGender(gender)) {
+            throw new IllegalArgumentException("Pet requires valid gender");
+        }
+    }
+
+    /**
+     * Check that a weight is valid for a pet: greater than or equal to 0 kg.
+     */
+    static void checkWeight(int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Pet requires valid weight");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Pet)) {
+            return false;
+        }
+        Pet other = (Pet) o;
+        return id == other.id && gender == other.gender && weight == other.weight
+                && name.equals(other.name)
+                && (breed == null ? other.breed == null : breed.equals(other.breed));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (id ^ (id >>> 32));
+        result = 31 * result + name.hashCode();
+        result = 31 * result + (breed != null ? breed.hashCode() : 0);
+        result = 31 * result + gender;
+        result = 31 * result + weight;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Pet{id=" + id + ", name=" + name + ", breed=" + breed + ", gender=" + gender +
+                ", weight=" + weight + "}";
+    }
+}
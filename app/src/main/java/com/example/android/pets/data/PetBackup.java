@@ -0,0 +1,551 @@
+package com.example.android.pets.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseErrorHandler;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Online backup and restore of the shelter database for {@link PetProvider}.
+ *
+ * A backup copies the schema and then every table, a few hundred rows at a time, into a new
+ * database file, while the provider keeps serving reads and writes. Like SQLite's own backup
+ * API, the copy starts again if a pet is written before it has finished, so the result is always
+ * a single consistent snapshot. The provider reports every write through
+ * {@link #onWriteStarted()} and {@link #onWriteFinished()} for this. If writers never leave a
+ * gap, the last attempt holds them off until it is done. Backups run one at a time on a thread of
+ * their own, under the provider's database lock, so the caller of
+ * {@link PetContract#METHOD_BACKUP} doesn't wait for the copy.
+ *
+ * A restore checks and copies the backup next to the database first, and then swaps it in with
+ * a rename, so the database is never left half restored. The provider has to keep every other
+ * operation out while {@link #replaceDatabase(File)} runs.
+ */
+class PetBackup {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = PetBackup.class.getSimpleName();
+
+    /** Directory in the app's files where backups are kept */
+    private static final String BACKUP_DIRECTORY = "backups";
+
+    /** Number of rows copied at a time */
+    private static final int STEP_ROWS = 500;
+
+    /** Attempts at a backup, the last of which holds writers off */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Pause after an attempt spoiled by a write, before the next */
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    /** Suffix of a backup while it is being written */
+    private static final String SUFFIX_TEMP = ".tmp";
+
+    /** Suffix of the copy of a backup waiting to be swapped in for the database */
+    private static final String SUFFIX_RESTORE = ".restore";
+
+    /** Suffixes of the files SQLite keeps next to a database */
+    private static final String[] DATABASE_FILE_SUFFIXES = new String[]{
+            "-journal", "-wal", "-shm"
+    };
+
+    /** Leaves a corrupt backup alone, instead of deleting it like the default handler does */
+    private static final DatabaseErrorHandler KEEP_CORRUPT_FILE = new DatabaseErrorHandler() {
+        @Override
+        public void onCorruption(SQLiteDatabase dbObj) {
+            Log.e(LOG_TAG, "Backup " + dbObj.getPath() + " is corrupt");
+        }
+    };
+
+    private final Context mContext;
+
+    private final PetDbHelper mDbHelper;
+
+    private final Lock mDatabaseLock;
+
+    /** Runs backups, one at a time */
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    /** Number of writes started and finished. A backup is consistent if neither moved. */
+    private final AtomicLong mWritesStarted = new AtomicLong();
+    private final AtomicLong mWritesFinished = new AtomicLong();
+
+    /**
+     * Status of the latest backup, as described by {@link PetContract#METHOD_GET_BACKUP_STATUS}.
+     * Guarded by this.
+     */
+    private Bundle mStatus;
+
+    /**
+     * Constructs a new {@link PetBackup}.
+     *
+     * @param context      of the app, for the backup and database files
+     * @param dbHelper     helper for the database to back up and restore
+     * @param databaseLock held while a backup runs, so a restore can't swap the database
+     */
+    PetBackup(Context context, PetDbHelper dbHelper, Lock databaseLock) {
+        mContext = context;
+        mDbHelper = dbHelper;
+        mDatabaseLock = databaseLock;
+        mStatus = new Bundle();
+        mStatus.putInt(PetContract.KEY_BACKUP_STATUS, PetContract.BACKUP_STATUS_NONE);
+    }
+
+    /**
+     * Record that a write to the database has started.
+     */
+    void onWriteStarted() {
+        mWritesStarted.incrementAndGet();
+    }
+
+    /**
+     * Record that a write to the database has committed or failed.
+     */
+    void onWriteFinished() {
+        mWritesFinished.incrementAndGet();
+    }
+
+    /**
+     * Start a backup to the file with the given name, or the default one for null, in the
+     * background, unless one is running already. Observers of
+     * {@link PetContract#BACKUP_STATUS_URI} are notified when it finishes. Returns the status,
+     * as described by {@link PetContract#METHOD_GET_BACKUP_STATUS}.
+     */
+    synchronized Bundle startBackup(String name) {
+        if (mStatus.getInt(PetContract.KEY_BACKUP_STATUS) == PetContract.BACKUP_STATUS_RUNNING) {
+            return getStatus();
+        }
+        final String fileName = getBackupFileName(name);
+        mStatus = new Bundle();
+        mStatus.putInt(PetContract.KEY_BACKUP_STATUS, PetContract.BACKUP_STATUS_RUNNING);
+        mStatus.putString(PetContract.KEY_BACKUP_NAME, fileName);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bundle status = null;
+                mDatabaseLock.lock();
+                try {
+                    status = backup(fileName);
+                    status.putInt(PetContract.KEY_BACKUP_STATUS,
+                            PetContract.BACKUP_STATUS_SUCCEEDED);
+                } catch (IOException | RuntimeException e) {
+                    Log.e(LOG_TAG, "Failed to back up the shelter database to " + fileName, e);
+                    status = new Bundle();
+                    status.putInt(PetContract.KEY_BACKUP_STATUS, PetContract.BACKUP_STATUS_FAILED);
+                } finally {
+                    mDatabaseLock.unlock();
+                }
+                status.putString(PetContract.KEY_BACKUP_NAME, fileName);
+                synchronized (PetBackup.this) {
+                    mStatus = status;
+                }
+                mContext.getContentResolver().notifyChange(PetContract.BACKUP_STATUS_URI, null);
+            }
+        });
+        return getStatus();
+    }
+
+    /**
+     * Return the status of the latest backup, as described by
+     * {@link PetContract#METHOD_GET_BACKUP_STATUS}.
+     */
+    synchronized Bundle getStatus() {
+        return new Bundle(mStatus);
+    }
+
+    /**
+     * Write a consistent snapshot of the database to the backup with the given file name, or
+     * the default one for null. Any earlier backup of that name is only replaced once the new
+     * one is complete. Returns the rows copied and the attempts it took.
+     */
+    private Bundle backup(String name) throws IOException {
+        File file = getBackupFile(name);
+        File temp = new File(file.getPath() + SUFFIX_TEMP);
+
+        for (int attempt = 1; ; attempt++) {
+            boolean holdWriters = attempt == MAX_ATTEMPTS;
+            long writes = mWritesStarted.get();
+            if (!holdWriters && mWritesFinished.get() != writes) {
+                // A write is already in progress, and may commit half way through the copy
+                writes = -1;
+            }
+
+            deleteDatabaseFiles(temp);
+            long rows = -1;
+            if (holdWriters || writes != -1) {
+                rows = copyDatabase(temp, holdWriters ? -1 : writes);
+            }
+            if (rows != -1) {
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Failed to save backup " + file.getName());
+                }
+                Bundle result = new Bundle();
+                result.putLong(PetContract.KEY_BACKUP_ROWS, rows);
+                result.putInt(PetContract.KEY_BACKUP_ATTEMPTS, attempt);
+                return result;
+            }
+            Log.v(LOG_TAG, "Pets were written during backup attempt " + attempt);
+
+            // Give a burst of writes the chance to end before trying again
+            SystemClock.sleep(RETRY_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Check the backup with the given file name, or the default one for null, and copy it next
+     * to the database, ready for {@link #replaceDatabase(File)}. Throws an
+     * {@link IllegalArgumentException} if it isn't a backup this version of the app can restore.
+     */
+    File prepareRestore(String name) throws IOException {
+        File file = getBackupFile(name);
+        if (!file.isFile()) {
+            throw new FileNotFoundException("No backup named " + file.getName());
+        }
+        checkBackup(file);
+
+        File restored = new File(getDatabaseFile().getPath() + SUFFIX_RESTORE);
+        deleteDatabaseFiles(restored);
+        copyFile(file, restored);
+        return restored;
+    }
+
+    /**
+     * Close the database and swap the prepared backup in for it. The next time the database is
+     * opened it is migrated to the current version if the backup is older. Must not be called
+     * while any other operation is using the database. Cursors still open on the old database
+     * lose their connection, and fail the next time they need to read another window of rows.
+     */
+    void replaceDatabase(File restored) throws IOException {
+        mDbHelper.close();
+
+        // A log left by the old database would otherwise be replayed into the restored one
+        File database = getDatabaseFile();
+        for (String suffix : DATABASE_FILE_SUFFIXES) {
+            File file = new File(database.getPath() + suffix);
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Failed to delete " + file.getName());
+            }
+        }
+        if (!restored.renameTo(database)) {
+            throw new IOException("Failed to swap in the restored database");
+        }
+        Log.i(LOG_TAG, "Restored " + database.getName() + " from a backup");
+    }
+
+    /**
+     * Copy the schema and every row of the database into a new database file. Unless writes
+     * is -1, the copy is abandoned as soon as a write starts after the given count of writes,
+     * and -1 returned. With -1, writers are held off while copying. Returns the rows copied.
+     */
+    private long copyDatabase(File file, long writes) {
+        SQLiteDatabase source = mDbHelper.getReadableDatabase();
+        SQLiteDatabase backup = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        boolean holdWriters = writes == -1;
+        if (holdWriters) {
+            source.beginTransactionNonExclusive();
+        }
+        try {
+            ArrayList<String> tables = new ArrayList<>();
+            ArrayList<String> otherSql = new ArrayList<>();
+            boolean hasSequence = false;
+
+            backup.beginTransaction();
+            try {
+                // Tables first, then their rows, then indexes, triggers and views over them.
+                // SQLite's own tables, and the tables behind full-text search tables, are
+                // created along with the tables that use them.
+                ArrayList<String> virtualTables = new ArrayList<>();
+                Cursor cursor = source.rawQuery("SELECT type, name, sql FROM sqlite_master " +
+                        "WHERE sql IS NOT NULL ORDER BY rowid", null);
+                try {
+                    while (cursor.moveToNext()) {
+                        String type = cursor.getString(0);
+                        String name = cursor.getString(1);
+                        String sql = cursor.getString(2);
+                        if (!"table".equals(type)) {
+                            otherSql.add(sql);
+                        } else if (name.equals("sqlite_sequence")) {
+                            hasSequence = true;
+                        } else if (!name.startsWith("sqlite_") && !name.equals("android_metadata")
+                                && !isShadowTable(name, virtualTables)) {
+                            if (sql.regionMatches(true, 0, "CREATE VIRTUAL TABLE", 0, 20)) {
+                                virtualTables.add(name);
+                            }
+                            backup.execSQL(sql);
+                            tables.add(name);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                long rows = 0;
+                for (String table : tables) {
+                    long tableRows = copyTable(source, backup, table, writes);
+                    if (tableRows == -1) {
+                        return -1;
+                    }
+                    rows += tableRows;
+                }
+                if (hasSequence) {
+                    // Created along with the first AUTOINCREMENT table; keeps ids from being reused
+                    rows += copySequence(source, backup);
+                }
+
+                for (String sql : otherSql) {
+                    backup.execSQL(sql);
+                }
+                backup.setVersion(source.getVersion());
+                if (!holdWriters && mWritesStarted.get() != writes) {
+                    return -1;
+                }
+                backup.setTransactionSuccessful();
+                return rows;
+            } finally {
+                backup.endTransaction();
+            }
+        } finally {
+            if (holdWriters) {
+                // Nothing was written, so there is nothing to commit
+                source.endTransaction();
+            }
+            backup.close();
+        }
+    }
+
+    /**
+     * Copy every row of a table, in rowid order, a step at a time. Returns the rows copied, or
+     * -1 if a write started after the given count of writes, unless that is -1.
+     */
+    private long copyTable(SQLiteDatabase source, SQLiteDatabase backup, String table,
+                           long writes) {
+        long rows = 0;
+        long lastRowId = Long.MIN_VALUE;
+        SQLiteStatement insert = null;
+        try {
+            while (true) {
+                Cursor cursor = source.rawQuery("SELECT rowid, * FROM \"" + table +
+                        "\" WHERE rowid > " + lastRowId + " ORDER BY rowid LIMIT " + STEP_ROWS,
+                        null);
+                int count;
+                try {
+                    count = cursor.getCount();
+                    if (insert == null && count > 0) {
+                        insert = backup.compileStatement(buildInsertSql(table,
+                                cursor.getColumnNames()));
+                    }
+                    while (cursor.moveToNext()) {
+                        lastRowId = cursor.getLong(0);
+                        bindRow(insert, cursor);
+                        insert.executeInsert();
+                    }
+                } finally {
+                    cursor.close();
+                }
+                rows += count;
+
+                if (writes != -1 && mWritesStarted.get() != writes) {
+                    return -1;
+                }
+                if (count < STEP_ROWS) {
+                    return rows;
+                }
+            }
+        } finally {
+            if (insert != null) {
+                insert.close();
+            }
+        }
+    }
+
+    /**
+     * Copy the AUTOINCREMENT high-water marks. Copying the AUTOINCREMENT tables has already
+     * added rows of its own for them, under rowids of its own, so the table is replaced by name
+     * rather than copied rowid for rowid. It is small, and read in one go. Returns the rows
+     * copied.
+     */
+    private static long copySequence(SQLiteDatabase source, SQLiteDatabase backup) {
+        backup.delete("sqlite_sequence", null, null);
+        Cursor cursor = source.rawQuery("SELECT name, seq FROM sqlite_sequence", null);
+        try {
+            ContentValues values = new ContentValues();
+            while (cursor.moveToNext()) {
+                values.put("name", cursor.getString(0));
+                values.put("seq", cursor.getLong(1));
+                backup.insertOrThrow("sqlite_sequence", null, values);
+            }
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Build the SQL to insert a row read by "SELECT rowid, *", keeping its rowid.
+     */
+    private static String buildInsertSql(String table, String[] columnNames) {
+        StringBuilder sql = new StringBuilder("INSERT INTO \"").append(table).append("\" (rowid");
+        for (int column = 1; column < columnNames.length; column++) {
+            sql.append(", \"").append(columnNames[column]).append('"');
+        }
+        sql.append(") VALUES (?");
+        for (int column = 1; column < columnNames.length; column++) {
+            sql.append(", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * Bind the current row of the cursor to the insert statement, keeping each value's type.
+     */
+    private static void bindRow(SQLiteStatement insert, Cursor cursor) {
+        for (int column = 0; column < cursor.getColumnCount(); column++) {
+            switch (cursor.getType(column)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    insert.bindNull(column + 1);
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    insert.bindLong(column + 1, cursor.getLong(column));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    insert.bindDouble(column + 1, cursor.getDouble(column));
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    insert.bindBlob(column + 1, cursor.getBlob(column));
+                    break;
+                default:
+                    insert.bindString(column + 1, cursor.getString(column));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Return whether the table holds the data of one of the given full-text search tables.
+     */
+    private static boolean isShadowTable(String table, ArrayList<String> virtualTables) {
+        for (String virtualTable : virtualTables) {
+            if (table.startsWith(virtualTable + "_")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Throw an {@link IllegalArgumentException} unless the file is an intact shelter database
+     * no newer than this version of the app.
+     */
+    private static void checkBackup(File file) {
+        SQLiteDatabase backup;
+        try {
+            backup = SQLiteDatabase.openDatabase(file.getPath(), null,
+                    SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS,
+                    KEEP_CORRUPT_FILE);
+        } catch (SQLiteException e) {
+            throw new IllegalArgumentException("Backup " + file.getName() + " isn't a database", e);
+        }
+        try {
+            int version = backup.getVersion();
+            if (version < 1 || version > PetDbHelper.DATABASE_VERSION) {
+                throw new IllegalArgumentException("Backup " + file.getName() +
+                        " has unsupported database version " + version);
+            }
+            String check = DatabaseUtils.stringForQuery(backup, "PRAGMA quick_check", null);
+            if (!"ok".equals(check)) {
+                throw new IllegalArgumentException("Backup " + file.getName() + " is corrupt: " +
+                        check);
+            }
+        } catch (SQLiteException e) {
+            throw new IllegalArgumentException("Backup " + file.getName() + " is corrupt", e);
+        } finally {
+            backup.close();
+        }
+    }
+
+    /**
+     * Return the backup file with the given name, or the default one for null, creating the
+     * backup directory if needed.
+     */
+    private File getBackupFile(String name) throws IOException {
+        name = getBackupFileName(name);
+        File directory = new File(mContext.getFilesDir(), BACKUP_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the backup directory");
+        }
+        return new File(directory, name);
+    }
+
+    /**
+     * Return the file name for the backup with the given name, or the default one for null.
+     * Throws an {@link IllegalArgumentException} for a name that isn't a plain file name.
+     */
+    private static String getBackupFileName(String name) {
+        if (name == null) {
+            name = PetContract.DEFAULT_BACKUP_NAME;
+        }
+        if (name.isEmpty() || name.startsWith(".") || name.indexOf(File.separatorChar) != -1) {
+            throw new IllegalArgumentException("Invalid backup name " + name);
+        }
+        return name;
+    }
+
+    private File getDatabaseFile() {
+        return mContext.getDatabasePath(PetDbHelper.DATABASE_NAME);
+    }
+
+    /**
+     * Delete a database file and the files SQLite keeps next to it, if there are any.
+     */
+    private static void deleteDatabaseFiles(File file) {
+        file.delete();
+        for (String suffix : DATABASE_FILE_SUFFIXES) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    /**
+     * Copy a file, and sync the copy to disk before returning.
+     */
+    private static void copyFile(File from, File to) throws IOException {
+        InputStream in = new FileInputStream(from);
+        try {
+            FileOutputStream out = new FileOutputStream(to);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                out.flush();
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.android.pets.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.pets.data.PetContract.BreedEntry;
+
+import java.util.HashMap;
+
+/**
+ * Resolves breed names to their _id in the breeds dictionary table for {@link PetProvider},
+ * adding breeds that aren't there yet. Ids already seen are kept in memory, so writing a pet of
+ * a known breed doesn't touch the breeds table at all.
+ *
+ * Breeds are never deleted, so a remembered id stays valid once the breed is committed. A breed
+ * added inside a transaction is only remembered for the thread running it until the transaction
+ * ends. The breeds table's ids aren't AUTOINCREMENT, so if the transaction is rolled back, the id
+ * can be handed out again for another breed, and no other thread may have seen it. Call
+ * {@link #onTransactionEnded(boolean)} after every write transaction that resolves breeds.
+ */
+class PetBreeds {
+
+    /**
+     * SQL for adding a breed if it isn't in the table yet
+     */
+    private static final String SQL_INSERT_BREED = "INSERT OR IGNORE INTO " +
+            BreedEntry.TABLE_NAME + " (" + BreedEntry.COLUMN_BREED_NAME + ") VALUES (?)";
+
+    /**
+     * SQL for finding a breed's _id
+     */
+    private static final String SQL_SELECT_BREED_ID = "SELECT " + BreedEntry._ID + " FROM " +
+            BreedEntry.TABLE_NAME + " WHERE " + BreedEntry.COLUMN_BREED_NAME + " = ?";
+
+    /** Committed breed ids by name. Guarded by this. */
+    private final HashMap<String, Long> mIds = new HashMap<>();
+
+    /** Breed ids added by the calling thread's transaction, not yet committed, by name */
+    private final ThreadLocal<HashMap<String, Long>> mPendingIds =
+            new ThreadLocal<HashMap<String, Long>>() {
+                @Override
+                protected HashMap<String, Long> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
+    /**
+     * Return the _id of the given breed, adding it to the breeds table if needed. Returns null
+     * for a null breed. Call it on the thread, and inside the transaction if any, that writes
+     * the pet.
+     */
+    Long resolve(SQLiteDatabase database, String breed) {
+        if (breed == null) {
+            return null;
+        }
+        synchronized (this) {
+            Long id = mIds.get(breed);
+            if (id != null) {
+                return id;
+            }
+        }
+        HashMap<String, Long> pendingIds = mPendingIds.get();
+        Long pendingId = pendingIds.get(breed);
+        if (pendingId != null) {
+            return pendingId;
+        }
+
+        long id;
+        SQLiteStatement insert = database.compileStatement(SQL_INSERT_BREED);
+        try {
+            insert.bindString(1, breed);
+            id = insert.executeInsert();
+        } finally {
+            insert.close();
+        }
+        boolean added = id != -1;
+        if (!added) {
+            // Already in the table
+            SQLiteStatement select = database.compileStatement(SQL_SELECT_BREED_ID);
+            try {
+                select.bindString(1, breed);
+                id = select.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                throw new IllegalStateException("Failed to add breed " + breed, e);
+            } finally {
+                select.close();
+            }
+        }
+
+        if (added && database.inTransaction()) {
+            // Only this thread may use the id until the transaction commits. A breed found in
+            // the table is committed already, since it wasn't added by this transaction.
+            pendingIds.put(breed, id);
+        } else {
+            synchronized (this) {
+                mIds.put(breed, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Called when the calling thread's write transaction has ended. Breeds it added are
+     * remembered for every thread if it was committed, and forgotten if it was rolled back.
+     */
+    void onTransactionEnded(boolean committed) {
+        HashMap<String, Long> pendingIds = mPendingIds.get();
+        if (committed && !pendingIds.isEmpty()) {
+            synchronized (this) {
+                mIds.putAll(pendingIds);
+            }
+        }
+        pendingIds.clear();
+    }
+
+    /**
+     * Forget every remembered id, as when the database is replaced.
+     */
+    synchronized void invalidate() {
+        mIds.clear();
+    }
+}
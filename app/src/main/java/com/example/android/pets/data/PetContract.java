@@ -1,6 +1,7 @@
 package com.example.android.pets.data;
 
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
@@ -41,14 +42,169 @@ public final class PetContract {
      * */
     public static final String PATH_PETS = PetEntry.TABLE_NAME;
 
+    /**
+     * Path (appended to the pets path) for full-text searches over pet name and breed.
+     * For instance, content://com.example.android.pets/pets/search/lab
+     */
+    public static final String PATH_SEARCH = "search";
+
+    /**
+     * Path (appended to the pets path) for shelter statistics.
+     * For instance, content://com.example.android.pets/pets/stats
+     */
+    public static final String PATH_STATS = "stats";
+
+    /**
+     * Path (appended to the pets path) for exporting every pet as a file.
+     * For instance, content://com.example.android.pets/pets/export
+     */
+    public static final String PATH_EXPORT = "export";
+
+    /**
+     * Path (appended to the pets path) for the log of changes to pets.
+     * For instance, content://com.example.android.pets/pets/changes?since=42
+     */
+    public static final String PATH_CHANGES = "changes";
+
+    /**
+     * Path for the shelters. Each shelter's pets are kept apart, at
+     * content://com.example.android.pets/shelters/<id>/pets, and every shelter's pets can be
+     * queried together at content://com.example.android.pets/shelters/pets.
+     */
+    public static final String PATH_SHELTERS = "shelters";
+
+    /** MIME types the export can be streamed in. CSV is the default. */
+    public static final String MIME_TYPE_CSV = "text/csv";
+    public static final String MIME_TYPE_JSON = "application/json";
+
+    /**
+     * Provider method, for {@link ContentResolver#call}, that returns the single-pet row cache's
+     * statistics in a Bundle under {@link #KEY_ROW_CACHE_HITS}, {@link #KEY_ROW_CACHE_MISSES}
+     * and {@link #KEY_ROW_CACHE_SIZE}.
+     */
+    public static final String METHOD_GET_ROW_CACHE_STATS = "get_row_cache_stats";
+
+    /** Row cache statistics keys: lookups answered from memory, lookups that read the
+     * database, and rows currently cached */
+    public static final String KEY_ROW_CACHE_HITS = "row_cache_hits";
+    public static final String KEY_ROW_CACHE_MISSES = "row_cache_misses";
+    public static final String KEY_ROW_CACHE_SIZE = "row_cache_size";
+
+    /**
+     * Provider method, for {@link ContentResolver#call}, that returns the provider's metrics.
+     * The result holds one Bundle per operation and URI type called so far, under keys such as
+     * "query pets" or "update pets/#". Each holds {@link #KEY_METRIC_CALLS},
+     * {@link #KEY_METRIC_ROWS}, {@link #KEY_METRIC_TOTAL_MICROS} and
+     * {@link #KEY_METRIC_LATENCY_HISTOGRAM}.
+     */
+    public static final String METHOD_GET_METRICS = "get_metrics";
+
+    /** Metric keys: number of calls, rows returned or changed, and total time taken */
+    public static final String KEY_METRIC_CALLS = "calls";
+    public static final String KEY_METRIC_ROWS = "rows";
+    public static final String KEY_METRIC_TOTAL_MICROS = "total_micros";
+
+    /**
+     * Metric key for the latency histogram, a long[] of call counts. Entry 0 counts calls under
+     * 1 microsecond, entry i calls from 2^(i-1) up to 2^i microseconds, and the last entry
+     * everything slower.
+     */
+    public static final String KEY_METRIC_LATENCY_HISTOGRAM = "latency_histogram";
+
+    /**
+     * Provider method, for {@link ContentResolver#call}, that starts writing a consistent
+     * snapshot of the shelter database to a backup file on the provider's own background thread,
+     * while the app keeps reading and writing pets. The arg is the backup's file name, or null
+     * for {@link #DEFAULT_BACKUP_NAME}. It returns at once, with the same result as
+     * {@link #METHOD_GET_BACKUP_STATUS}; if a backup is already running, no other is started.
+     * Observers of {@link #BACKUP_STATUS_URI} are notified when the backup finishes.
+     */
+    public static final String METHOD_BACKUP = "backup";
+
+    /**
+     * Provider method, for {@link ContentResolver#call}, that returns the status of the latest
+     * backup: {@link #KEY_BACKUP_STATUS}, and {@link #KEY_BACKUP_NAME} once a backup has been
+     * started. A backup that succeeded also has {@link #KEY_BACKUP_ROWS} and
+     * {@link #KEY_BACKUP_ATTEMPTS}.
+     */
+    public static final String METHOD_GET_BACKUP_STATUS = "get_backup_status";
+
+    /**
+     * Provider method, for {@link ContentResolver#call}, that replaces the shelter database with
+     * a backup made by {@link #METHOD_BACKUP}, and then notifies every observer of the provider.
+     * The arg is the backup's file name, or null for {@link #DEFAULT_BACKUP_NAME}. It blocks
+     * until the backup has been swapped in, so call it off the main thread. Cursors still open
+     * on the old database can fail once they need more rows, so reload them when notified.
+     */
+    public static final String METHOD_RESTORE = "restore";
+
+    /**
+     * Path (appended to base content URI) that is notified when a backup finishes. Nothing is
+     * served from it.
+     */
+    public static final String PATH_BACKUP = "backup";
+
+    /** URI to observe for the end of a backup started with {@link #METHOD_BACKUP} */
+    public static final Uri BACKUP_STATUS_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_BACKUP);
+
+    /** File name of the backup when none is given. Backups are kept in the app's files. */
+    public static final String DEFAULT_BACKUP_NAME = "shelter-backup.db";
+
+    /** Backup result keys: rows copied, and passes needed to get a consistent snapshot */
+    public static final String KEY_BACKUP_ROWS = "backup_rows";
+    public static final String KEY_BACKUP_ATTEMPTS = "backup_attempts";
+
+    /** Backup status keys: one of the BACKUP_STATUS_ constants, and the backup's file name */
+    public static final String KEY_BACKUP_STATUS = "backup_status";
+    public static final String KEY_BACKUP_NAME = "backup_name";
+
+    /** Values for {@link #KEY_BACKUP_STATUS} */
+    public static final int BACKUP_STATUS_NONE = 0;
+    public static final int BACKUP_STATUS_RUNNING = 1;
+    public static final int BACKUP_STATUS_SUCCEEDED = 2;
+    public static final int BACKUP_STATUS_FAILED = 3;
+
+    /**
+     * Provider method, for {@link ContentResolver#call}, that returns the sequence number of the
+     * newest change to the pets under {@link #KEY_CHANGE_SEQUENCE}, or 0 if there is none. Read
+     * it before loading every pet, and then ask {@link ChangeEntry#buildChangesUri(long)} for
+     * the changes since.
+     */
+    public static final String METHOD_GET_CHANGE_SEQUENCE = "get_change_sequence";
+
+    /** Change sequence key: sequence number of the newest change */
+    public static final String KEY_CHANGE_SEQUENCE = "change_sequence";
+
     public static class PetEntry implements BaseColumns {
 
         /** Constant, table name */
         public final static String TABLE_NAME = "pets";
 
+        /** Constant, name of the full-text search table that mirrors pet names and breeds */
+        public final static String SEARCH_TABLE_NAME = "pets_fts";
+
+        /**
+         * Constant, name of the view that joins each pet to its breed name. Pets are read through
+         * it, so they have a {@link #COLUMN_PET_BREED} column as before the breeds table.
+         */
+        public final static String VIEW_NAME = "pets_view";
+
         /** The content URI to access the pet data in the provider */
         public final static Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, TABLE_NAME);
 
+        /**
+         * The content URI to export every pet. Open it with
+         * {@link ContentResolver#openInputStream} for CSV, or with
+         * {@link ContentResolver#openTypedAssetFileDescriptor} and {@link #MIME_TYPE_JSON} for JSON.
+         */
+        public final static Uri CONTENT_EXPORT_URI = Uri.withAppendedPath(CONTENT_URI, PATH_EXPORT);
+
+        /**
+         * The content URI to search pets by name and breed. Append the search text with
+         * {@link #buildSearchUri(String)}.
+         */
+        public final static Uri CONTENT_SEARCH_URI = Uri.withAppendedPath(CONTENT_URI, PATH_SEARCH);
+
         /**
          * The MIME type of the {@link #CONTENT_URI} for a list of pets.
          */
@@ -67,15 +223,41 @@ public final class PetContract {
         // Constant, title for pet name column
         public static final String COLUMN_PET_NAME = "name";
 
-        // Constant, title for pet breed column
+        // Constant, title for pet breed column. Read through the view; not stored in the table.
         public static final String COLUMN_PET_BREED = "breed";
 
+        // Constant, title for the stored column holding the _id of the pet's breed in the breeds
+        // table, or null if the breed isn't known
+        public static final String COLUMN_PET_BREED_ID = "breed_id";
+
         // Constant, title for pet gender column
         public static final String COLUMN_PET_GENDER = "gender";
 
         // Constant, title for pet weight column
         public static final String COLUMN_PET_WEIGHT = "weight";
 
+        /**
+         * Columns returned for a list of pets, when a query on {@link #CONTENT_URI} or a search
+         * URI passes a null projection. Ask for only the columns you bind: a projection of _id
+         * and indexed columns, such as _id and name, can be read from an index alone.
+         */
+        public static final String[] PROJECTION_LIST = new String[]{
+                _ID,
+                COLUMN_PET_NAME,
+                COLUMN_PET_BREED
+        };
+
+        /**
+         * Columns returned for a single pet, when a query on a pet's URI passes a null projection
+         */
+        public static final String[] PROJECTION_DETAIL = new String[]{
+                _ID,
+                COLUMN_PET_NAME,
+                COLUMN_PET_BREED,
+                COLUMN_PET_GENDER,
+                COLUMN_PET_WEIGHT
+        };
+
         // Constant, for undefined gender
         public static final int GENDER_UNKNOWN = 0;
         // Constant, for the male gender
@@ -83,6 +265,197 @@ public final class PetContract {
         // Constant, for the female gender
         public static final int GENDER_FEMALE = 2;
 
+        /**
+         * Query parameter for a paged query on {@link #CONTENT_URI}: the maximum number of pets to
+         * return. Without it, the whole table is returned. A delete with it is rejected, rather
+         * than deleting only part of the matching pets; see {@link #QUERY_PARAMETER_CHUNK}.
+         */
+        public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+        /**
+         * Query parameter for a delete from {@link #CONTENT_URI} that turns on chunked deletion:
+         * only the first chunk of this many matching pets, in _id order, is deleted. Delete
+         * repeatedly until nothing is left to clear a large table without locking it for long.
+         */
+        public static final String QUERY_PARAMETER_CHUNK = "chunk";
+
+        /**
+         * Query parameter for a paged query: only return pets that come after the pet with this
+         * _id, i.e. the last row of the previous page. Pages are in _id order.
+         */
+        public static final String QUERY_PARAMETER_AFTER_ID = "after_id";
+
+        /**
+         * Query parameter for a paged query in name order: only return pets that come after the
+         * pet with this name and {@link #QUERY_PARAMETER_AFTER_ID}. Use an empty name and an id
+         * of 0 to request the first page. The same as {@link #QUERY_PARAMETER_SORT} by
+         * {@link #SORT_NAME} with {@link #QUERY_PARAMETER_AFTER_VALUE}.
+         */
+        public static final String QUERY_PARAMETER_AFTER_NAME = "after_name";
+
+        /**
+         * Query parameter for a paged query in a {@link #QUERY_PARAMETER_SORT} order: only return
+         * pets that come after the pet with this value in the sort column and
+         * {@link #QUERY_PARAMETER_AFTER_ID}. Leave it out for the first page, or when the last
+         * pet on the previous page had no value in the sort column.
+         */
+        public static final String QUERY_PARAMETER_AFTER_VALUE = "after_value";
+
+        /**
+         * Query parameter for queries on {@link #CONTENT_URI} and search URIs: the order of the
+         * pets, {@link #SORT_NAME}, {@link #SORT_BREED} or {@link #SORT_WEIGHT}. Ties, and the
+         * default order, are by _id. Name and weight order are served from an index; breed
+         * order sorts the breed names joined in from the breeds table.
+         */
+        public static final String QUERY_PARAMETER_SORT = "sort";
+
+        /** Sort orders for {@link #QUERY_PARAMETER_SORT} */
+        public static final String SORT_NAME = "name";
+        public static final String SORT_BREED = "breed";
+        public static final String SORT_WEIGHT = "weight";
+
+        /**
+         * Query parameter for queries on {@link #CONTENT_URI} and search URIs: only return pets
+         * of this gender, one of the GENDER_ constants.
+         */
+        public static final String QUERY_PARAMETER_GENDER = "gender";
+
+        /**
+         * Query parameters for queries on {@link #CONTENT_URI} and search URIs: only return pets
+         * weighing at least, or at most, this many kg.
+         */
+        public static final String QUERY_PARAMETER_MIN_WEIGHT = "min_weight";
+        public static final String QUERY_PARAMETER_MAX_WEIGHT = "max_weight";
+
+        /** Filter value passed to {@link #buildFilterUri} for no filter */
+        public static final int FILTER_ANY = -1;
+
+        /**
+         * Builds a URI for the pets of the given list URI, such as {@link #CONTENT_URI} or a
+         * search URI, in the given order and restricted by the given filters. Page through it
+         * with {@link #buildPageUri(Uri, int, long, String)}.
+         *
+         * @param sort      one of the SORT_ constants, or null for _id order
+         * @param gender    one of the GENDER_ constants, or {@link #FILTER_ANY}
+         * @param minWeight least weight in kg, or {@link #FILTER_ANY}
+         * @param maxWeight greatest weight in kg, or {@link #FILTER_ANY}
+         */
+        public static Uri buildFilterUri(Uri listUri, String sort, int gender, int minWeight,
+                                         int maxWeight) {
+            Uri.Builder builder = listUri.buildUpon();
+            if (sort != null) {
+                builder.appendQueryParameter(QUERY_PARAMETER_SORT, sort);
+            }
+            if (gender != FILTER_ANY) {
+                builder.appendQueryParameter(QUERY_PARAMETER_GENDER, Integer.toString(gender));
+            }
+            if (minWeight != FILTER_ANY) {
+                builder.appendQueryParameter(QUERY_PARAMETER_MIN_WEIGHT, Integer.toString(minWeight));
+            }
+            if (maxWeight != FILTER_ANY) {
+                builder.appendQueryParameter(QUERY_PARAMETER_MAX_WEIGHT, Integer.toString(maxWeight));
+            }
+            return builder.build();
+        }
+
+        /**
+         * Builds a URI that deletes one chunk of pets, of at most the given size, per delete.
+         */
+        public static Uri buildDeleteChunkUri(int chunkSize) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_CHUNK, Integer.toString(chunkSize))
+                    .build();
+        }
+
+        /**
+         * Builds a URI for one page of pets, starting after the given row.
+         *
+         * @param limit     maximum number of pets on the page
+         * @param afterId   _id of the last pet on the previous page, or 0 for the first page
+         * @param afterName name of the last pet on the previous page to page in name order,
+         *                  or null to page in _id order
+         */
+        public static Uri buildPageUri(int limit, long afterId, String afterName) {
+            Uri listUri = afterName != null
+                    ? buildFilterUri(CONTENT_URI, SORT_NAME, FILTER_ANY, FILTER_ANY, FILTER_ANY)
+                    : CONTENT_URI;
+            return buildPageUri(listUri, limit, afterId, afterName);
+        }
+
+        /**
+         * Builds a URI for one page of the results of the given list URI, such as a search URI
+         * or a {@link #buildFilterUri} URI, starting after the given row.
+         *
+         * @param limit      maximum number of pets on the page
+         * @param afterId    _id of the last pet on the previous page, or 0 for the first page
+         * @param afterValue value in the list's sort column of the last pet on the previous
+         *                   page, or null for the first page, a null value, or _id order
+         */
+        public static Uri buildPageUri(Uri listUri, int limit, long afterId, String afterValue) {
+            Uri.Builder builder = listUri.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, Integer.toString(limit))
+                    .appendQueryParameter(QUERY_PARAMETER_AFTER_ID, Long.toString(afterId));
+            if (afterValue != null) {
+                builder.appendQueryParameter(QUERY_PARAMETER_AFTER_VALUE, afterValue);
+            }
+            return builder.build();
+        }
+
+        /**
+         * Query parameter on the URIs passed to content observers, giving the kind of change:
+         * {@link #OPERATION_INSERT}, {@link #OPERATION_UPDATE} or {@link #OPERATION_DELETE}.
+         * Changes to a single pet are notified on that pet's URI, and changes to an unknown set
+         * of pets on {@link #CONTENT_URI}.
+         */
+        public static final String QUERY_PARAMETER_OPERATION = "operation";
+
+        /** Change operation values for {@link #QUERY_PARAMETER_OPERATION} */
+        public static final String OPERATION_INSERT = "insert";
+        public static final String OPERATION_UPDATE = "update";
+        public static final String OPERATION_DELETE = "delete";
+
+        /**
+         * Builds the URI notified when the pet with the given id has changed.
+         */
+        public static Uri buildChangeUri(long id, String operation) {
+            return ContentUris.withAppendedId(CONTENT_URI, id).buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_OPERATION, operation)
+                    .build();
+        }
+
+        /**
+         * Builds the URI notified when any number of pets may have changed.
+         */
+        public static Uri buildChangeUri(String operation) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_OPERATION, operation)
+                    .build();
+        }
+
+        /**
+         * Returns the id of the pet a change notification URI refers to, or -1 if the change
+         * isn't limited to a single pet.
+         */
+        public static long getChangedId(Uri changeUri) {
+            if (changeUri == null || changeUri.getPathSegments().size() != 2
+                    || !PATH_PETS.equals(changeUri.getPathSegments().get(0))) {
+                return -1;
+            }
+            try {
+                return ContentUris.parseId(changeUri);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * Builds a URI that searches pet names and breeds for the given text. Every word in the
+         * text is matched as a prefix, so "lab ret" finds "Labrador Retriever".
+         */
+        public static Uri buildSearchUri(String query) {
+            return CONTENT_SEARCH_URI.buildUpon().appendPath(query).build();
+        }
+
         /**
          * Returns whether or not the given gender is {@link #GENDER_UNKNOWN}, {@link #GENDER_MALE},
          * or {@link #GENDER_FEMALE}.
@@ -96,4 +469,185 @@ public final class PetContract {
 
     }
 
+    /**
+     * Columns of the shelter statistics returned for {@link #CONTENT_URI}. There is one row for
+     * the whole shelter, then one row per gender, then one row per breed.
+     */
+    public static class PetStatsEntry {
+
+        /** The content URI to access the shelter statistics in the provider */
+        public final static Uri CONTENT_URI = Uri.withAppendedPath(PetEntry.CONTENT_URI, PATH_STATS);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for the shelter statistics.
+         */
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_PETS +
+                        "/" + PATH_STATS;
+
+        // Constant, title for the column naming what a row is grouped by
+        public static final String COLUMN_GROUP = "stats_group";
+
+        // Constant, title for the column holding the gender or breed of a row (null for the total)
+        public static final String COLUMN_KEY = "stats_key";
+
+        // Constant, title for the pet count column
+        public static final String COLUMN_COUNT = "pet_count";
+
+        // Constants, titles for the weight columns (null when a group has no pets)
+        public static final String COLUMN_WEIGHT_MIN = "weight_min";
+        public static final String COLUMN_WEIGHT_AVG = "weight_avg";
+        public static final String COLUMN_WEIGHT_MAX = "weight_max";
+
+        /** Every column of a statistics row, in order */
+        public static final String[] COLUMNS = new String[]{
+                COLUMN_GROUP,
+                COLUMN_KEY,
+                COLUMN_COUNT,
+                COLUMN_WEIGHT_MIN,
+                COLUMN_WEIGHT_AVG,
+                COLUMN_WEIGHT_MAX
+        };
+
+        // Constant, group of the row for the whole shelter
+        public static final String GROUP_TOTAL = "total";
+        // Constant, group of the rows per gender. The key is the gender constant.
+        public static final String GROUP_GENDER = "gender";
+        // Constant, group of the rows per breed. The key is the breed.
+        public static final String GROUP_BREED = "breed";
+    }
+
+    /**
+     * The log of changes to the pets: one row per pet inserted, updated or deleted, numbered in
+     * the order the changes were committed. Observers can read the changes since the last one
+     * they saw, instead of every pet, whenever they are notified.
+     *
+     * The log only goes back so far. When changes a caller asked for have been dropped from it,
+     * the result starts with a row whose operation is {@link #OPERATION_RESET}, and the caller
+     * has to load every pet again before applying the rows after it.
+     */
+    public static class ChangeEntry {
+
+        /**
+         * The content URI to read the log of changes. Add the sequence number of the last change
+         * already seen with {@link #buildChangesUri(long)}.
+         */
+        public final static Uri CONTENT_URI = Uri.withAppendedPath(PetEntry.CONTENT_URI,
+                PATH_CHANGES);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI} for the log of changes.
+         */
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_PETS +
+                        "/" + PATH_CHANGES;
+
+        /** Constant, table name */
+        public final static String TABLE_NAME = "pet_changes";
+
+        /**
+         * Query parameter for the sequence number of the last change already seen. Only later
+         * changes are returned. Defaults to 0, for every change still in the log.
+         */
+        public static final String QUERY_PARAMETER_SINCE = "since";
+
+        // Constant, title for the sequence number column. Numbers only ever go up.
+        public static final String COLUMN_SEQUENCE = "seq";
+
+        // Constant, title for the column holding the _id of the pet that changed, or null for a
+        // reset row
+        public static final String COLUMN_PET_ID = "pet_id";
+
+        // Constant, title for the column holding what happened: PetEntry.OPERATION_INSERT,
+        // OPERATION_UPDATE or OPERATION_DELETE, or OPERATION_RESET
+        public static final String COLUMN_OPERATION = "operation";
+
+        // Constant, title for the column holding when the change was made, in seconds since
+        // the epoch
+        public static final String COLUMN_CHANGED_AT = "changed_at";
+
+        /** Every column of a change row, in order */
+        public static final String[] COLUMNS = new String[]{
+                COLUMN_SEQUENCE,
+                COLUMN_PET_ID,
+                COLUMN_OPERATION,
+                COLUMN_CHANGED_AT
+        };
+
+        /**
+         * Operation of the row standing in for changes that have been dropped from the log. Its
+         * sequence number is the last one dropped.
+         */
+        public static final String OPERATION_RESET = "reset";
+
+        /**
+         * Return the URI for the changes made after the one with the given sequence number.
+         */
+        public static Uri buildChangesUri(long since) {
+            return CONTENT_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_SINCE, Long.toString(since))
+                    .build();
+        }
+    }
+
+    /**
+     * Shelters, each with pets of its own. The app's own shelter is
+     * {@link #DEFAULT_SHELTER_ID}, whose pets are the ones at {@link PetEntry#CONTENT_URI}.
+     * Every other shelter's pets are at {@link #buildPetsUri(long)}, and take the same columns,
+     * query parameters and selections as the pets URI.
+     */
+    public static class ShelterEntry {
+
+        /** Id of the app's own shelter */
+        public static final long DEFAULT_SHELTER_ID = 0;
+
+        /**
+         * The content URI to query the pets of every shelter at once. Rows have a
+         * {@link #COLUMN_SHELTER_ID} column, and are in the order given by
+         * {@link PetEntry#QUERY_PARAMETER_SORT} across shelters, or else shelter by shelter.
+         * The paging parameters don't apply, but {@link PetEntry#QUERY_PARAMETER_LIMIT} does.
+         * A query with a sort order is rejected; order the pets with the sort parameter.
+         */
+        public final static Uri CONTENT_URI_ALL_PETS =
+                Uri.withAppendedPath(BASE_CONTENT_URI, PATH_SHELTERS + "/" + PATH_PETS);
+
+        // Constant, title for the column holding the id of a pet's shelter, in results for
+        // every shelter
+        public static final String COLUMN_SHELTER_ID = "shelter_id";
+
+        /**
+         * Return the URI of a shelter's pets.
+         */
+        public static Uri buildPetsUri(long shelterId) {
+            return BASE_CONTENT_URI.buildUpon()
+                    .appendPath(PATH_SHELTERS)
+                    .appendPath(Long.toString(shelterId))
+                    .appendPath(PATH_PETS)
+                    .build();
+        }
+
+        /**
+         * Return the URI of a single pet in a shelter.
+         */
+        public static Uri buildPetUri(long shelterId, long petId) {
+            return ContentUris.withAppendedId(buildPetsUri(shelterId), petId);
+        }
+    }
+
+    /**
+     * Dictionary of breed names. Each distinct breed is stored once, and pets refer to it by
+     * {@link PetEntry#COLUMN_PET_BREED_ID}. Only {@link PetProvider} reads or writes it.
+     */
+    public static class BreedEntry implements BaseColumns {
+
+        /** Constant, table name */
+        public final static String TABLE_NAME = "breeds";
+
+        // Constant, title for _id column
+        public static final String _ID = BaseColumns._ID;
+
+        // Constant, title for breed name column. Unique.
+        public static final String COLUMN_BREED_NAME = "name";
+    }
+
 }
@@ -13,7 +13,68 @@ public class PetDbHelper extends SQLiteOpenHelper {
     public static final String DATABASE_NAME = "shelter.db";
 
     /** Database version. If you change the database schema, you must increment the database version */
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 6;
+
+    /** Index names */
+    public static final String INDEX_PETS_NAME = "index_pets_name";
+    public static final String INDEX_PETS_BREED = "index_pets_breed";
+    public static final String INDEX_PETS_GENDER_WEIGHT = "index_pets_gender_weight";
+    public static final String INDEX_PETS_WEIGHT = "index_pets_weight";
+
+    /** Trigger names */
+    public static final String TRIGGER_PETS_FTS_INSERT = "pets_fts_insert";
+    public static final String TRIGGER_PETS_FTS_UPDATE = "pets_fts_update";
+    public static final String TRIGGER_PETS_FTS_DELETE = "pets_fts_delete";
+    public static final String TRIGGER_PET_CHANGES_INSERT = "pet_changes_insert";
+    public static final String TRIGGER_PET_CHANGES_UPDATE = "pet_changes_update";
+    public static final String TRIGGER_PET_CHANGES_DELETE = "pet_changes_delete";
+    public static final String TRIGGER_PET_CHANGES_COMPACT = "pet_changes_compact";
+
+    /** Changes kept in the change log: at least the newest MAX, and none older than the age */
+    public static final int CHANGE_LOG_MAX_ENTRIES = 10000;
+    public static final long CHANGE_LOG_MAX_AGE_SECONDS = 7 * 24 * 60 * 60;
+
+    /** The change log is compacted each time this many changes have been logged */
+    private static final int CHANGE_LOG_COMPACT_INTERVAL = 500;
+
+    /** Trigger body statements that copy a pet row into, or remove it from, the search table */
+    private static final String SQL_INSERT_FTS_ROW = "INSERT INTO " +
+            PetContract.PetEntry.SEARCH_TABLE_NAME + " (docid, " +
+            PetContract.PetEntry.COLUMN_PET_NAME + ", " + PetContract.PetEntry.COLUMN_PET_BREED +
+            ") VALUES (new." + PetContract.PetEntry._ID + ", new." +
+            PetContract.PetEntry.COLUMN_PET_NAME + ", new." +
+            PetContract.PetEntry.COLUMN_PET_BREED + ");";
+    private static final String SQL_DELETE_FTS_ROW = "DELETE FROM " +
+            PetContract.PetEntry.SEARCH_TABLE_NAME + " WHERE docid = old." +
+            PetContract.PetEntry._ID + ";";
+
+    /**
+     * Trigger body statement that copies a pet row into the search table from version 5 on,
+     * when the breed is stored as a reference to the breeds table
+     */
+    private static final String SQL_INSERT_FTS_ROW_BREED_ID = "INSERT INTO " +
+            PetContract.PetEntry.SEARCH_TABLE_NAME + " (docid, " +
+            PetContract.PetEntry.COLUMN_PET_NAME + ", " + PetContract.PetEntry.COLUMN_PET_BREED +
+            ") VALUES (new." + PetContract.PetEntry._ID + ", new." +
+            PetContract.PetEntry.COLUMN_PET_NAME + ", (SELECT " +
+            PetContract.BreedEntry.COLUMN_BREED_NAME + " FROM " +
+            PetContract.BreedEntry.TABLE_NAME + " WHERE " + PetContract.BreedEntry._ID +
+            " = new." + PetContract.PetEntry.COLUMN_PET_BREED_ID + "));";
+
+    /**
+     * Return a trigger body statement that logs a change to the pet row with the given alias,
+     * new or old, to the change log
+     */
+    private static String getLogChangeSql(String row, String operation) {
+        return "INSERT INTO " + PetContract.ChangeEntry.TABLE_NAME + " (" +
+                PetContract.ChangeEntry.COLUMN_PET_ID + ", " +
+                PetContract.ChangeEntry.COLUMN_OPERATION + ", " +
+                PetContract.ChangeEntry.COLUMN_CHANGED_AT + ") VALUES (" + row + "." +
+                PetContract.PetEntry._ID + ", '" + operation + "', strftime('%s', 'now'));";
+    }
+
+    /** Name of the pets table while it is rebuilt by the version 5 migration */
+    private static final String TABLE_PETS_REBUILT = "pets_rebuilt";
 
     /** String Constants - typical components for constructing the arguments */
     public static final String ARGUMENTS_OPENING_PARENTHESES = " (";
@@ -29,14 +90,94 @@ public class PetDbHelper extends SQLiteOpenHelper {
     public static final String KEYWORD_AUTOINCREMENT = " AUTOINCREMENT";
     public static final String KEYWORD_NOT_NULL = " NOT NULL";
     public static final String KEYWORD_DEFAULT = " DEFAULT ";
+    public static final String KEYWORD_UNIQUE = " UNIQUE";
+
+    /** Values for PRAGMA synchronous. {@link #SYNCHRONOUS_DEFAULT} leaves SQLite's own setting. */
+    public static final int SYNCHRONOUS_DEFAULT = -1;
+    public static final int SYNCHRONOUS_OFF = 0;
+    public static final int SYNCHRONOUS_NORMAL = 1;
+    public static final int SYNCHRONOUS_FULL = 2;
+
+    /** Value for the page cache size that leaves SQLite's own setting */
+    public static final int CACHE_SIZE_DEFAULT = 0;
+
+    /** Whether to open the database in write-ahead logging mode */
+    private final boolean mWriteAheadLogging;
+
+    /** Page cache size, in pages, or {@link #CACHE_SIZE_DEFAULT} */
+    private final int mCacheSize;
+
+    /** PRAGMA synchronous level, or {@link #SYNCHRONOUS_DEFAULT} */
+    private final int mSynchronous;
 
     /**
-     * Constructs a new instance of {@link PetDbHelper}.
+     * Constructs a new instance of {@link PetDbHelper} with the default journaling and
+     * connection settings.
      *
      * @param context of the app
      */
     public PetDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, false, CACHE_SIZE_DEFAULT, SYNCHRONOUS_DEFAULT);
+    }
+
+    /**
+     * Constructs a new instance of {@link PetDbHelper} with tuned connection settings.
+     *
+     * @param context           of the app
+     * @param writeAheadLogging true to open the database in write-ahead logging mode, so readers
+     *                          aren't blocked while a write is in progress
+     * @param cacheSize         page cache size, in pages, or {@link #CACHE_SIZE_DEFAULT}. Only
+     *                          the primary connection uses it; see {@link #onOpen}
+     * @param synchronous       one of the SYNCHRONOUS_ constants
+     */
+    public PetDbHelper(Context context, boolean writeAheadLogging, int cacheSize, int synchronous) {
+        this(context, DATABASE_NAME, writeAheadLogging, cacheSize, synchronous);
+    }
+
+    /**
+     * Constructs a new instance of {@link PetDbHelper} for a database file of its own, such as
+     * one shelter's pets.
+     *
+     * @param context           of the app
+     * @param name              of the database file
+     * @param writeAheadLogging true to open the database in write-ahead logging mode, so readers
+     *                          aren't blocked while a write is in progress
+     * @param cacheSize         page cache size, in pages, or {@link #CACHE_SIZE_DEFAULT}
+     * @param synchronous       one of the SYNCHRONOUS_ constants
+     */
+    public PetDbHelper(Context context, String name, boolean writeAheadLogging, int cacheSize,
+                       int synchronous) {
+        super(context, name, null, DATABASE_VERSION);
+        mWriteAheadLogging = writeAheadLogging;
+        mCacheSize = cacheSize;
+        mSynchronous = synchronous;
+    }
+
+    /**
+     * This is called when the database has been opened. Apply the connection settings.
+     *
+     * The pragmas only reach the primary connection, which makes every write and, without
+     * write-ahead logging, every read. In write-ahead logging mode the framework opens extra
+     * read-only connections on its own, with no hook to configure them, so concurrent readers
+     * keep SQLite's default page cache. Their synchronous level doesn't matter, as they never
+     * write.
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (db.isReadOnly()) {
+            return;
+        }
+
+        if (mWriteAheadLogging) {
+            db.enableWriteAheadLogging();
+        }
+        if (mCacheSize != CACHE_SIZE_DEFAULT) {
+            db.execSQL("PRAGMA cache_size = " + mCacheSize);
+        }
+        if (mSynchronous != SYNCHRONOUS_DEFAULT) {
+            db.execSQL("PRAGMA synchronous = " + mSynchronous);
+        }
     }
 
     /**
@@ -56,13 +197,204 @@ public class PetDbHelper extends SQLiteOpenHelper {
 
         // Execute the SQL statement
         db.execSQL(SQL_CREATE_PETS_TABLE);
+
+        // The table above is the version 1 schema. Bring it up to date through the same
+        // migration chain that existing databases go through.
+        onUpgrade(db, 1, DATABASE_VERSION);
     }
 
     /**
-     * This is called when the database needs to be upgraded.
+     * This is called when the database needs to be upgraded. Each version step is applied in
+     * order, so a database from any earlier version is migrated in place without losing data.
      */
     @Override
-    public void onUpgrade(SQLiteDatabase db, int i, int i1) {
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            migrateTo(db, version);
+        }
+    }
+
+    /**
+     * Apply the schema changes that take the database from (version - 1) to the given version.
+     * Add a new case here, and increment {@link #DATABASE_VERSION}, for every schema change.
+     */
+    private void migrateTo(SQLiteDatabase db, int version) {
+        switch (version) {
+            case 2:
+                // Secondary indexes for filtering and sorting by name, breed and gender/weight
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PETS_NAME + " ON " +
+                        PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                        PetContract.PetEntry.COLUMN_PET_NAME + ARGUMENTS_CLOSING_PARENTHESES);
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PETS_BREED + " ON " +
+                        PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                        PetContract.PetEntry.COLUMN_PET_BREED + ARGUMENTS_CLOSING_PARENTHESES);
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PETS_GENDER_WEIGHT + " ON " +
+                        PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                        PetContract.PetEntry.COLUMN_PET_GENDER + ARGUMENTS_COMMA_SEPARATOR +
+                        PetContract.PetEntry.COLUMN_PET_WEIGHT + ARGUMENTS_CLOSING_PARENTHESES);
+                break;
+            case 3:
+                // Full-text search table over name and breed, keyed by the pet's _id
+                db.execSQL("CREATE VIRTUAL TABLE " + PetContract.PetEntry.SEARCH_TABLE_NAME +
+                        " USING fts3" + ARGUMENTS_OPENING_PARENTHESES +
+                        PetContract.PetEntry.COLUMN_PET_NAME + ARGUMENTS_COMMA_SEPARATOR +
+                        PetContract.PetEntry.COLUMN_PET_BREED + ARGUMENTS_CLOSING_PARENTHESES);
+
+                // Keep the search table in sync with the pets table
+                db.execSQL("CREATE TRIGGER " + TRIGGER_PETS_FTS_INSERT + " AFTER INSERT ON " +
+                        PetContract.PetEntry.TABLE_NAME + " BEGIN " + SQL_INSERT_FTS_ROW + " END;");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_PETS_FTS_UPDATE + " AFTER UPDATE OF " +
+                        PetContract.PetEntry.COLUMN_PET_NAME + ARGUMENTS_COMMA_SEPARATOR +
+                        PetContract.PetEntry.COLUMN_PET_BREED + " ON " +
+                        PetContract.PetEntry.TABLE_NAME + " BEGIN " + SQL_DELETE_FTS_ROW +
+                        SQL_INSERT_FTS_ROW + " END;");
+                db.execSQL("CREATE TRIGGER " + TRIGGER_PETS_FTS_DELETE + " AFTER DELETE ON " +
+                        PetContract.PetEntry.TABLE_NAME + " BEGIN " + SQL_DELETE_FTS_ROW + " END;");
+
+                // Index the pets that already exist
+                db.execSQL("INSERT INTO " + PetContract.PetEntry.SEARCH_TABLE_NAME + " (docid" +
+                        ARGUMENTS_COMMA_SEPARATOR + PetContract.PetEntry.COLUMN_PET_NAME +
+                        ARGUMENTS_COMMA_SEPARATOR + PetContract.PetEntry.COLUMN_PET_BREED +
+                        ") SELECT " + PetContract.PetEntry._ID + ARGUMENTS_COMMA_SEPARATOR +
+                        PetContract.PetEntry.COLUMN_PET_NAME + ARGUMENTS_COMMA_SEPARATOR +
+                        PetContract.PetEntry.COLUMN_PET_BREED + " FROM " +
+                        PetContract.PetEntry.TABLE_NAME + ";");
+                break;
+            case 4:
+                // Index for sorting every pet by weight; the gender/weight index only serves
+                // weight order within one gender
+                db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_PETS_WEIGHT + " ON " +
+                        PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                        PetContract.PetEntry.COLUMN_PET_WEIGHT + ARGUMENTS_CLOSING_PARENTHESES);
+                break;
+            case 5:
+                migrateToBreedsTable(db);
+                break;
+            case 6:
+                migrateToChangeLog(db);
+                break;
+            default:
+                throw new IllegalStateException("No migration to database version " + version);
+        }
+    }
+
+    /**
+     * Add an append-only log of the pets inserted, updated and deleted, numbered in commit order,
+     * for the change feed. Triggers fill it in, so every write path is logged, and trim it every
+     * {@link #CHANGE_LOG_COMPACT_INTERVAL} changes to the retention window. AUTOINCREMENT keeps
+     * sequence numbers from being reused, even once every change has been trimmed.
+     */
+    private void migrateToChangeLog(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + PetContract.ChangeEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.ChangeEntry.COLUMN_SEQUENCE + DATATYPE_INTEGER + KEYWORD_PRIMARY_KEY + KEYWORD_AUTOINCREMENT + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.ChangeEntry.COLUMN_PET_ID + DATATYPE_INTEGER + KEYWORD_NOT_NULL + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.ChangeEntry.COLUMN_OPERATION + DATATYPE_TEXT + KEYWORD_NOT_NULL + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.ChangeEntry.COLUMN_CHANGED_AT + DATATYPE_INTEGER + KEYWORD_NOT_NULL +
+                ARGUMENTS_CLOSING_PARENTHESES);
+
+        db.execSQL("CREATE TRIGGER " + TRIGGER_PET_CHANGES_INSERT + " AFTER INSERT ON " +
+                PetContract.PetEntry.TABLE_NAME + " BEGIN " +
+                getLogChangeSql("new", PetContract.PetEntry.OPERATION_INSERT) + " END;");
+        db.execSQL("CREATE TRIGGER " + TRIGGER_PET_CHANGES_UPDATE + " AFTER UPDATE ON " +
+                PetContract.PetEntry.TABLE_NAME + " BEGIN " +
+                getLogChangeSql("new", PetContract.PetEntry.OPERATION_UPDATE) + " END;");
+        db.execSQL("CREATE TRIGGER " + TRIGGER_PET_CHANGES_DELETE + " AFTER DELETE ON " +
+                PetContract.PetEntry.TABLE_NAME + " BEGIN " +
+                getLogChangeSql("old", PetContract.PetEntry.OPERATION_DELETE) + " END;");
+
+        // Drop changes beyond the most kept, and those older than the retention window
+        db.execSQL("CREATE TRIGGER " + TRIGGER_PET_CHANGES_COMPACT + " AFTER INSERT ON " +
+                PetContract.ChangeEntry.TABLE_NAME + " WHEN new." +
+                PetContract.ChangeEntry.COLUMN_SEQUENCE + " % " + CHANGE_LOG_COMPACT_INTERVAL +
+                " = 0 BEGIN DELETE FROM " + PetContract.ChangeEntry.TABLE_NAME + " WHERE " +
+                PetContract.ChangeEntry.COLUMN_SEQUENCE + " <= new." +
+                PetContract.ChangeEntry.COLUMN_SEQUENCE + " - " + CHANGE_LOG_MAX_ENTRIES + " OR " +
+                PetContract.ChangeEntry.COLUMN_CHANGED_AT + " < new." +
+                PetContract.ChangeEntry.COLUMN_CHANGED_AT + " - " + CHANGE_LOG_MAX_AGE_SECONDS +
+                "; END;");
+    }
+
+    /**
+     * Move breed names into a breeds dictionary table, so each distinct breed is stored once and
+     * pets refer to it by _id. SQLite can't drop a column, so the pets table is rebuilt without
+     * its breed text, keeping every pet's _id. Its indexes and search triggers are recreated,
+     * and a view joins the breed names back in for readers.
+     */
+    private void migrateToBreedsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + PetContract.BreedEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.BreedEntry._ID + DATATYPE_INTEGER + KEYWORD_PRIMARY_KEY + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.BreedEntry.COLUMN_BREED_NAME + DATATYPE_TEXT + KEYWORD_NOT_NULL + KEYWORD_UNIQUE +
+                ARGUMENTS_CLOSING_PARENTHESES);
+        db.execSQL("INSERT INTO " + PetContract.BreedEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.BreedEntry.COLUMN_BREED_NAME + ") SELECT DISTINCT " +
+                PetContract.PetEntry.COLUMN_PET_BREED + " FROM " + PetContract.PetEntry.TABLE_NAME +
+                " WHERE " + PetContract.PetEntry.COLUMN_PET_BREED + " IS NOT NULL;");
+
+        // Rebuild the pets table with a breed reference in place of the breed text
+        db.execSQL("CREATE TABLE " + TABLE_PETS_REBUILT + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.PetEntry._ID + DATATYPE_INTEGER + KEYWORD_PRIMARY_KEY + KEYWORD_AUTOINCREMENT + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.PetEntry.COLUMN_PET_NAME + DATATYPE_TEXT + KEYWORD_NOT_NULL + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.PetEntry.COLUMN_PET_BREED_ID + DATATYPE_INTEGER + " REFERENCES " +
+                PetContract.BreedEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.BreedEntry._ID + ")" + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.PetEntry.COLUMN_PET_GENDER + DATATYPE_INTEGER + KEYWORD_NOT_NULL + KEYWORD_DEFAULT + Integer.toString(PetContract.PetEntry.GENDER_UNKNOWN) + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.PetEntry.COLUMN_PET_WEIGHT + DATATYPE_INTEGER + KEYWORD_NOT_NULL + KEYWORD_DEFAULT + "0" +
+                ARGUMENTS_CLOSING_PARENTHESES);
+        db.execSQL("INSERT INTO " + TABLE_PETS_REBUILT + " SELECT p." + PetContract.PetEntry._ID +
+                ", p." + PetContract.PetEntry.COLUMN_PET_NAME + ", b." + PetContract.BreedEntry._ID +
+                ", p." + PetContract.PetEntry.COLUMN_PET_GENDER + ", p." +
+                PetContract.PetEntry.COLUMN_PET_WEIGHT + " FROM " + PetContract.PetEntry.TABLE_NAME +
+                " p LEFT JOIN " + PetContract.BreedEntry.TABLE_NAME + " b ON b." +
+                PetContract.BreedEntry.COLUMN_BREED_NAME + " = p." +
+                PetContract.PetEntry.COLUMN_PET_BREED + ";");
+
+        // Keep the AUTOINCREMENT high-water mark, so ids of deleted pets are never reused. The
+        // copy only gave the new table a sequence row if it copied any pets, and sqlite_sequence
+        // has no unique key to replace on, so the row is replaced by hand.
+        db.execSQL("DELETE FROM sqlite_sequence WHERE name = '" + TABLE_PETS_REBUILT + "';");
+        db.execSQL("INSERT INTO sqlite_sequence (name, seq) SELECT '" + TABLE_PETS_REBUILT +
+                "', seq FROM sqlite_sequence WHERE name = '" + PetContract.PetEntry.TABLE_NAME + "';");
+
+        // Dropping the old table drops its indexes and triggers too
+        db.execSQL("DROP TABLE " + PetContract.PetEntry.TABLE_NAME + ";");
+        db.execSQL("ALTER TABLE " + TABLE_PETS_REBUILT + " RENAME TO " +
+                PetContract.PetEntry.TABLE_NAME + ";");
+
+        db.execSQL("CREATE INDEX " + INDEX_PETS_NAME + " ON " +
+                PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.PetEntry.COLUMN_PET_NAME + ARGUMENTS_CLOSING_PARENTHESES);
+        db.execSQL("CREATE INDEX " + INDEX_PETS_BREED + " ON " +
+                PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.PetEntry.COLUMN_PET_BREED_ID + ARGUMENTS_CLOSING_PARENTHESES);
+        db.execSQL("CREATE INDEX " + INDEX_PETS_GENDER_WEIGHT + " ON " +
+                PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.PetEntry.COLUMN_PET_GENDER + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.PetEntry.COLUMN_PET_WEIGHT + ARGUMENTS_CLOSING_PARENTHESES);
+        db.execSQL("CREATE INDEX " + INDEX_PETS_WEIGHT + " ON " +
+                PetContract.PetEntry.TABLE_NAME + ARGUMENTS_OPENING_PARENTHESES +
+                PetContract.PetEntry.COLUMN_PET_WEIGHT + ARGUMENTS_CLOSING_PARENTHESES);
+
+        // The search table keeps its rows, since every pet kept its _id
+        db.execSQL("CREATE TRIGGER " + TRIGGER_PETS_FTS_INSERT + " AFTER INSERT ON " +
+                PetContract.PetEntry.TABLE_NAME + " BEGIN " + SQL_INSERT_FTS_ROW_BREED_ID + " END;");
+        db.execSQL("CREATE TRIGGER " + TRIGGER_PETS_FTS_UPDATE + " AFTER UPDATE OF " +
+                PetContract.PetEntry.COLUMN_PET_NAME + ARGUMENTS_COMMA_SEPARATOR +
+                PetContract.PetEntry.COLUMN_PET_BREED_ID + " ON " +
+                PetContract.PetEntry.TABLE_NAME + " BEGIN " + SQL_DELETE_FTS_ROW +
+                SQL_INSERT_FTS_ROW_BREED_ID + " END;");
+        db.execSQL("CREATE TRIGGER " + TRIGGER_PETS_FTS_DELETE + " AFTER DELETE ON " +
+                PetContract.PetEntry.TABLE_NAME + " BEGIN " + SQL_DELETE_FTS_ROW + " END;");
 
+        // Readers see the same columns as before, with the breed name joined back in
+        db.execSQL("CREATE VIEW " + PetContract.PetEntry.VIEW_NAME + " AS SELECT p." +
+                PetContract.PetEntry._ID + " AS " + PetContract.PetEntry._ID + ", p." +
+                PetContract.PetEntry.COLUMN_PET_NAME + " AS " + PetContract.PetEntry.COLUMN_PET_NAME + ", b." +
+                PetContract.BreedEntry.COLUMN_BREED_NAME + " AS " + PetContract.PetEntry.COLUMN_PET_BREED + ", p." +
+                PetContract.PetEntry.COLUMN_PET_GENDER + " AS " + PetContract.PetEntry.COLUMN_PET_GENDER + ", p." +
+                PetContract.PetEntry.COLUMN_PET_WEIGHT + " AS " + PetContract.PetEntry.COLUMN_PET_WEIGHT + ", p." +
+                PetContract.PetEntry.COLUMN_PET_BREED_ID + " AS " + PetContract.PetEntry.COLUMN_PET_BREED_ID +
+                " FROM " + PetContract.PetEntry.TABLE_NAME + " p LEFT JOIN " +
+                PetContract.BreedEntry.TABLE_NAME + " b ON b." + PetContract.BreedEntry._ID + " = p." +
+                PetContract.PetEntry.COLUMN_PET_BREED_ID + ";");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package com.example.android.pets.data;
+
+import android.content.ContentProvider;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Writes every pet in the shelter to a pipe, as CSV or JSON, for {@link PetProvider}'s export
+ * URI. Rows are read in fixed-size chunks in _id order, and each chunk's cursor is closed before
+ * the next is read, so memory use stays the same however many pets there are. Each chunk is read
+ * under the provider's database lock, so a restore can swap the database between chunks but
+ * never during one.
+ */
+class PetExporter implements ContentProvider.PipeDataWriter<String> {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = PetExporter.class.getSimpleName();
+
+    /** Number of rows read from the database at a time */
+    private static final int CHUNK_SIZE = 500;
+
+    /** Columns exported, in order */
+    private static final String[] COLUMNS = new String[]{
+            PetEntry._ID,
+            PetEntry.COLUMN_PET_NAME,
+            PetEntry.COLUMN_PET_BREED,
+            PetEntry.COLUMN_PET_GENDER,
+            PetEntry.COLUMN_PET_WEIGHT
+    };
+
+    private final PetDbHelper mDbHelper;
+
+    private final Lock mDatabaseLock;
+
+    /**
+     * Constructs a new {@link PetExporter}.
+     *
+     * @param dbHelper     helper for the database to export
+     * @param databaseLock held while reading each chunk
+     */
+    PetExporter(PetDbHelper dbHelper, Lock databaseLock) {
+        mDbHelper = dbHelper;
+        mDatabaseLock = databaseLock;
+    }
+
+    /**
+     * Write the export to the pipe. The format is given as a MIME type in args.
+     */
+    @Override
+    public void writeDataToPipe(ParcelFileDescriptor output, Uri uri, String mimeType, Bundle opts,
+                                String args) {
+        boolean json = PetContract.MIME_TYPE_JSON.equals(args);
+        try {
+            // The pipe is closed by ContentProvider once this returns, so only flush the writer
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(output.getFileDescriptor()), "UTF-8"));
+            writeHeader(writer, json);
+            long lastId = 0;
+            boolean first = true;
+            while (true) {
+                // Counting the rows reads the whole chunk, so it is done under the lock and the
+                // pipe is written without it
+                Cursor cursor;
+                int count;
+                mDatabaseLock.lock();
+                try {
+                    SQLiteDatabase database = mDbHelper.getReadableDatabase();
+                    cursor = database.query(PetEntry.VIEW_NAME, COLUMNS, PetEntry._ID + " > ?",
+                            new String[]{Long.toString(lastId)}, null, null, PetEntry._ID,
+                            Integer.toString(CHUNK_SIZE));
+                    count = cursor.getCount();
+                } finally {
+                    mDatabaseLock.unlock();
+                }
+                try {
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getLong(0);
+                        if (json) {
+                            writeJsonRow(writer, cursor, first);
+                        } else {
+                            writeCsvRow(writer, cursor);
+                        }
+                        first = false;
+                    }
+                } finally {
+                    cursor.close();
+                }
+                if (count < CHUNK_SIZE) {
+                    break;
+                }
+            }
+            if (json) {
+                writer.write("\n]\n");
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // The reader closed its end of the pipe early
+            Log.w(LOG_TAG, "Export of " + uri + " stopped early", e);
+        }
+    }
+
+    private static void writeHeader(Writer writer, boolean json) throws IOException {
+        if (json) {
+            writer.write('[');
+            return;
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(COLUMNS[i]);
+        }
+        writer.write('\n');
+    }
+
+    private static void writeCsvRow(Writer writer, Cursor cursor) throws IOException {
+        writer.write(Long.toString(cursor.getLong(0)));
+        writer.write(',');
+        writeCsvField(writer, cursor.getString(1));
+        writer.write(',');
+        writeCsvField(writer, cursor.getString(2));
+        writer.write(',');
+        writer.write(Integer.toString(cursor.getInt(3)));
+        writer.write(',');
+        writer.write(Integer.toString(cursor.getInt(4)));
+        writer.write('\n');
+    }
+
+    /**
+     * Write a text field, quoting it if it holds a separator, quote or line break. A null value
+     * is written as an empty field.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1
+                && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeJsonRow(Writer writer, Cursor cursor, boolean first) throws IOException {
+        writer.write(first ? "\n  {" : ",\n  {");
+        writer.write(JSONObject.quote(COLUMNS[0]));
+        writer.write(':');
+        writer.write(Long.toString(cursor.getLong(0)));
+        writer.write(',');
+        writer.write(JSONObject.quote(COLUMNS[1]));
+        writer.write(':');
+        writer.write(JSONObject.quote(cursor.getString(1)));
+        writer.write(',');
+        writer.write(JSONObject.quote(COLUMNS[2]));
+        writer.write(':');
+        writer.write(cursor.isNull(2) ? "null" : JSONObject.quote(cursor.getString(2)));
+        writer.write(',');
+        writer.write(JSONObject.quote(COLUMNS[3]));
+        writer.write(':');
+        writer.write(Integer.toString(cursor.getInt(3)));
+        writer.write(',');
+        writer.write(JSONObject.quote(COLUMNS[4]));
+        writer.write(':');
+        writer.write(Integer.toString(cursor.getInt(4)));
+        writer.write('}');
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.android.pets.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.os.SystemClock;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports pets from a CSV or JSON stream, in the formats written by the provider's export URI.
+ *
+ * The stream is parsed one row at a time, and rows are committed in chunks through
+ * {@link ContentResolver#bulkInsert}, so they are checked by the same rules as any other new pet.
+ * A chunk holding a malformed or invalid row is skipped as a whole; the rest of the import
+ * carries on. Imported pets get new ids, so an _id column is ignored.
+ */
+public class PetImporter {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = PetImporter.class.getSimpleName();
+
+    /** Default number of rows committed at a time */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Callback for progress reports, made after every chunk on the importing thread.
+     */
+    public interface ProgressListener {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * Snapshot of an import's progress.
+     */
+    public static class Progress {
+
+        /** Rows read from the stream so far */
+        public final int rowsRead;
+
+        /** Rows added to the shelter so far */
+        public final int rowsImported;
+
+        /** Chunks skipped because they held a malformed or invalid row */
+        public final int chunksFailed;
+
+        /** Time spent importing so far */
+        public final long elapsedMillis;
+
+        Progress(int rowsRead, int rowsImported, int chunksFailed, long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.rowsImported = rowsImported;
+            this.chunksFailed = chunksFailed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Return the number of rows read per second so far.
+         */
+        public double getRowsPerSecond() {
+            return elapsedMillis > 0 ? rowsRead * 1000.0 / elapsedMillis : 0;
+        }
+    }
+
+    private final ContentResolver mContentResolver;
+
+    private final int mChunkSize;
+
+    /**
+     * Constructs a new {@link PetImporter}.
+     *
+     * @param contentResolver to insert the pets through
+     * @param chunkSize       number of rows committed at a time
+     */
+    public PetImporter(ContentResolver contentResolver, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        mContentResolver = contentResolver;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Import pets from CSV with a header row naming the columns. Blocks until the stream ends,
+     * so call it off the main thread.
+     */
+    public Progress importCsv(InputStream in, ProgressListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        Chunks chunks = new Chunks(listener);
+
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            return chunks.finish();
+        }
+
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                // Blank line
+                continue;
+            }
+            if (record.size() != header.size()) {
+                chunks.addMalformed();
+                continue;
+            }
+            ContentValues values = new ContentValues();
+            boolean malformed = false;
+            for (int i = 0; i < header.size(); i++) {
+                if (!putColumn(values, header.get(i).trim(), record.get(i))) {
+                    malformed = true;
+                }
+            }
+            if (malformed) {
+                chunks.addMalformed();
+            } else {
+                chunks.add(values);
+            }
+        }
+        return chunks.finish();
+    }
+
+    /**
+     * Import pets from a JSON array of objects. Blocks until the stream ends, so call it off the
+     * main thread. A syntax error in the JSON itself stops the import, after committing the
+     * chunks before it.
+     */
+    public Progress importJson(InputStream in, ProgressListener listener) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+        Chunks chunks = new Chunks(listener);
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    chunks.addMalformed();
+                    continue;
+                }
+                ContentValues values = new ContentValues();
+                boolean malformed = false;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String column = reader.nextName();
+                    JsonToken token = reader.peek();
+                    if (token == JsonToken.NULL) {
+                        reader.nextNull();
+                        putColumn(values, column, null);
+                    } else if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                        if (!putColumn(values, column, reader.nextString())) {
+                            malformed = true;
+                        }
+                    } else {
+                        reader.skipValue();
+                        malformed = true;
+                    }
+                }
+                reader.endObject();
+
+                if (malformed) {
+                    chunks.addMalformed();
+                } else {
+                    chunks.add(values);
+                }
+            }
+            reader.endArray();
+        } catch (IllegalStateException e) {
+            // The JSON isn't an array of objects
+            throw new IOException("Malformed pet JSON", e);
+        } finally {
+            // Commit whatever was read before a syntax error
+            chunks.finish();
+        }
+        return chunks.finish();
+    }
+
+    /**
+     * Put one imported field into the values for a new pet. The gender is kept as text; the
+     * provider converts and checks it. An empty breed means no breed. Return false if the field
+     * can't be used, as for a weight that isn't a whole number of kg, 0 or more, which the
+     * editor wouldn't accept either.
+     */
+    private static boolean putColumn(ContentValues values, String column, String value) {
+        if (PetEntry.COLUMN_PET_NAME.equals(column)) {
+            values.put(PetEntry.COLUMN_PET_NAME, value);
+        } else if (PetEntry.COLUMN_PET_BREED.equals(column)) {
+            values.put(PetEntry.COLUMN_PET_BREED, value == null || value.isEmpty() ? null : value);
+        } else if (PetEntry.COLUMN_PET_GENDER.equals(column)) {
+            values.put(PetEntry.COLUMN_PET_GENDER, value);
+        } else if (PetEntry.COLUMN_PET_WEIGHT.equals(column)) {
+            if (value != null && !value.isEmpty()) {
+                int weight;
+                try {
+                    weight = Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (weight < 0) {
+                    return false;
+                }
+                values.put(PetEntry.COLUMN_PET_WEIGHT, weight);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read one CSV record, following quoted fields across line breaks. Returns null at the end
+     * of the stream.
+     */
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // A quoted field carries on over the line break
+                line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Collects rows into chunks and commits each chunk when it fills up.
+     */
+    private class Chunks {
+
+        private final ProgressListener mListener;
+
+        private final long mStartMillis = SystemClock.elapsedRealtime();
+
+        private final ArrayList<ContentValues> mRows = new ArrayList<>();
+
+        /** Whether the current chunk holds a row that couldn't be parsed */
+        private boolean mMalformed;
+
+        private int mRowsRead;
+
+        private int mRowsImported;
+
+        private int mChunksFailed;
+
+        private boolean mFinished;
+
+        Chunks(ProgressListener listener) {
+            mListener = listener;
+        }
+
+        void add(ContentValues values) {
+            mRows.add(values);
+            rowRead();
+        }
+
+        void addMalformed() {
+            mMalformed = true;
+            rowRead();
+        }
+
+        /**
+         * Commit the last, partly filled chunk, and return the final progress.
+         */
+        Progress finish() {
+            if (!mFinished && mRowsRead % mChunkSize != 0) {
+                commit();
+            }
+            mFinished = true;
+            return getProgress();
+        }
+
+        private void rowRead() {
+            mRowsRead++;
+            if (mRowsRead % mChunkSize == 0) {
+                commit();
+            }
+        }
+
+        private void commit() {
+            if (mMalformed) {
+                mChunksFailed++;
+            } else if (!mRows.isEmpty()) {
+                try {
+                    mRowsImported += mContentResolver.bulkInsert(PetEntry.CONTENT_URI,
+                            mRows.toArray(new ContentValues[mRows.size()]));
+                } catch (IllegalArgumentException e) {
+                    Log.w(LOG_TAG, "Skipped chunk ending at row " + mRowsRead, e);
+                    mChunksFailed++;
+                }
+            }
+            mRows.clear();
+            mMalformed = false;
+
+            if (mListener != null) {
+                mListener.onProgress(getProgress());
+            }
+        }
+
+        private Progress getProgress() {
+            return new Progress(mRowsRead, mRowsImported, mChunksFailed,
+                    SystemClock.elapsedRealtime() - mStartMillis);
+        }
+    }
+}
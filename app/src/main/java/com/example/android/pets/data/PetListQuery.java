@@ -0,0 +1,185 @@
+package com.example.android.pets.data;
+
+import android.net.Uri;
+
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import java.util.ArrayList;
+
+/**
+ * The selection, sort order and limit for a list of pets, built from the typed query
+ * parameters of a {@link PetEntry#CONTENT_URI} or search URI: sort order, gender and weight
+ * filters, and keyset paging.
+ *
+ * Every parameter value is bound as an argument, and each parameter only switches a fixed
+ * clause on or off, so there are only a few distinct SQL strings. Each is compiled once and then
+ * reused from the connection's statement cache. Queries run against the pets view, which joins
+ * in breed names. Name and weight order are served by an index, or (gender, weight) for weight
+ * order within one gender; breed order sorts the joined names. Page bounds are written as a
+ * range on the sort column, so SQLite can seek straight to the page.
+ */
+class PetListQuery {
+
+    private final String mSortColumn;
+
+    private final String mSelection;
+
+    private final String[] mSelectionArgs;
+
+    private final String mLimit;
+
+    private PetListQuery(String sortColumn, String selection, String[] selectionArgs, String limit) {
+        mSortColumn = sortColumn;
+        mSelection = selection;
+        mSelectionArgs = selectionArgs;
+        mLimit = limit;
+    }
+
+    /**
+     * Build the query for a list URI. The caller's selection, if any, is applied on top of the
+     * filters. Throws an {@link IllegalArgumentException} for an invalid parameter.
+     */
+    static PetListQuery fromUri(Uri uri, String selection, String[] selectionArgs) {
+        StringBuilder where = new StringBuilder();
+        ArrayList<String> args = new ArrayList<>();
+
+        // Sort column. Name order can also be asked for with the older after_name parameter.
+        String sort = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_SORT);
+        String afterValue = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_AFTER_VALUE);
+        String afterName = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_AFTER_NAME);
+        if (sort == null && afterName != null) {
+            sort = PetEntry.SORT_NAME;
+        }
+        if (afterValue == null && PetEntry.SORT_NAME.equals(sort)) {
+            afterValue = afterName;
+        }
+        String sortColumn;
+        if (sort == null) {
+            sortColumn = null;
+        } else if (sort.equals(PetEntry.SORT_NAME)) {
+            sortColumn = PetEntry.COLUMN_PET_NAME;
+        } else if (sort.equals(PetEntry.SORT_BREED)) {
+            sortColumn = PetEntry.COLUMN_PET_BREED;
+        } else if (sort.equals(PetEntry.SORT_WEIGHT)) {
+            sortColumn = PetEntry.COLUMN_PET_WEIGHT;
+        } else {
+            throw new IllegalArgumentException("Invalid sort order for " + uri);
+        }
+
+        // Filters
+        String gender = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_GENDER);
+        if (gender != null) {
+            if (!PetEntry.isValidGender(parseInt(uri, gender))) {
+                throw new IllegalArgumentException("Invalid gender filter for " + uri);
+            }
+            appendClause(where, PetEntry.COLUMN_PET_GENDER + " = ?");
+            args.add(gender);
+        }
+        String minWeight = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_MIN_WEIGHT);
+        if (minWeight != null) {
+            parseInt(uri, minWeight);
+            appendClause(where, PetEntry.COLUMN_PET_WEIGHT + " >= ?");
+            args.add(minWeight);
+        }
+        String maxWeight = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_MAX_WEIGHT);
+        if (maxWeight != null) {
+            parseInt(uri, maxWeight);
+            appendClause(where, PetEntry.COLUMN_PET_WEIGHT + " <= ?");
+            args.add(maxWeight);
+        }
+
+        // Page bounds
+        String limit = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_LIMIT);
+        if (limit != null) {
+            if (parseInt(uri, limit) <= 0) {
+                throw new IllegalArgumentException("Page limit must be positive for " + uri);
+            }
+            String afterIdParameter = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_AFTER_ID);
+            long afterId;
+            try {
+                afterId = afterIdParameter != null ? Long.parseLong(afterIdParameter) : 0;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid paging parameters for " + uri);
+            }
+            String afterIdArg = Long.toString(afterId);
+
+            if (sortColumn == null) {
+                appendClause(where, PetEntry._ID + " > ?");
+                args.add(afterIdArg);
+            } else if (afterValue != null) {
+                // Written as a range plus a tie-break, so the sort column's index can seek to it
+                appendClause(where, sortColumn + " >= ? AND (" + sortColumn + " > ? OR " +
+                        PetEntry._ID + " > ?)");
+                args.add(afterValue);
+                args.add(afterValue);
+                args.add(afterIdArg);
+            } else if (afterId > 0) {
+                // The previous page ended among the pets with no value, which sort first
+                appendClause(where, "((" + sortColumn + " IS NULL AND " + PetEntry._ID +
+                        " > ?) OR " + sortColumn + " IS NOT NULL)");
+                args.add(afterIdArg);
+            }
+        }
+
+        // Caller's selection
+        if (selection != null && !selection.isEmpty()) {
+            appendClause(where, "(" + selection + ")");
+            if (selectionArgs != null) {
+                for (String arg : selectionArgs) {
+                    args.add(arg);
+                }
+            }
+        }
+
+        return new PetListQuery(sortColumn, where.length() > 0 ? where.toString() : null,
+                args.isEmpty() ? null : args.toArray(new String[args.size()]), limit);
+    }
+
+    /**
+     * Return the sort order: the URI's sort column then _id when it has one, or else the given
+     * sort order for a whole list, or _id order for a page.
+     */
+    String getSortOrder(String sortOrder) {
+        if (mSortColumn != null) {
+            return mSortColumn + ", " + PetEntry._ID;
+        }
+        return mLimit != null ? PetEntry._ID : sortOrder;
+    }
+
+    /**
+     * Return the column the URI sorts by, or null if it doesn't choose a sort order.
+     */
+    String getSortColumn() {
+        return mSortColumn;
+    }
+
+    String getSelection() {
+        return mSelection;
+    }
+
+    String[] getSelectionArgs() {
+        return mSelectionArgs;
+    }
+
+    /**
+     * Return the page size, or null for the whole list.
+     */
+    String getLimit() {
+        return mLimit;
+    }
+
+    private static void appendClause(StringBuilder where, String clause) {
+        if (where.length() > 0) {
+            where.append(" AND ");
+        }
+        where.append(clause);
+    }
+
+    private static int parseInt(Uri uri, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid query parameter " + value + " for " + uri);
+        }
+    }
+}
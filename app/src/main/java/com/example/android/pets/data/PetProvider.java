@@ -1,18 +1,40 @@
 package com.example.android.pets.data;
 
+import android.content.ClipDescription;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
+import android.content.res.AssetFileDescriptor;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
 import android.util.Log;
 import android.widget.Toast;
 
 import com.example.android.pets.R;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.example.android.pets.data.PetContract.ChangeEntry;
 import com.example.android.pets.data.PetContract.PetEntry;
+import com.example.android.pets.data.PetContract.ShelterEntry;
 
 /**
  * {@link ContentProvider} for Pets app.
@@ -29,6 +51,59 @@ public class PetProvider extends ContentProvider {
      */
     private PetDbHelper mDbHelper;
 
+    /**
+     * Cache of single pet rows, for {@link #PET_ID} queries
+     */
+    private PetRowCache mRowCache;
+
+    /**
+     * Streams the export, for {@link #PET_EXPORT} files
+     */
+    private PetExporter mExporter;
+
+    /**
+     * Backs up and restores the database, for {@link PetContract#METHOD_BACKUP} and
+     * {@link PetContract#METHOD_RESTORE}
+     */
+    private PetBackup mBackup;
+
+    /**
+     * Databases of the shelters other than the app's own, opened as they are used
+     */
+    private PetShelters mShelters;
+
+    /**
+     * Held for reading by every operation on the database, and for writing while a restore
+     * swaps the database file
+     */
+    private final ReentrantReadWriteLock mDatabaseLock = new ReentrantReadWriteLock();
+
+    /**
+     * Breed name to breeds table _id lookups, for writing pets
+     */
+    private final PetBreeds mBreeds = new PetBreeds();
+
+    /**
+     * Compiled statements for inserting, updating and deleting single pets
+     */
+    private final PetStatementCache mStatements = new PetStatementCache(mBreeds);
+
+    /**
+     * Per-operation call counts, rows touched and latencies
+     */
+    private final PetProviderMetrics mMetrics = new PetProviderMetrics(METRICS_URI_NAMES);
+
+    /**
+     * Memoized shelter statistics, for {@link #PET_STATS} queries
+     */
+    private final PetStats mStats = new PetStats();
+
+    /**
+     * Change notifications held back while {@link #applyBatch(ArrayList)} runs on the current
+     * thread. Null when no batch is in progress.
+     */
+    private final ThreadLocal<Set<Uri>> mPendingNotifications = new ThreadLocal<>();
+
     /**
      * URI matcher code for the content URI for the pets table
      */
@@ -39,6 +114,70 @@ public class PetProvider extends ContentProvider {
      */
     private static final int PET_ID = 101;
 
+    /**
+     * URI matcher code for the content URI for a full-text search of the pets table
+     */
+    private static final int PET_SEARCH = 102;
+
+    /**
+     * URI matcher code for the content URI for the shelter statistics
+     */
+    private static final int PET_STATS = 103;
+
+    /**
+     * URI matcher code for the content URI for exporting every pet
+     */
+    private static final int PET_EXPORT = 104;
+
+    /**
+     * URI matcher code for the content URI for the pets of another shelter
+     */
+    private static final int SHELTER_PETS = 105;
+
+    /**
+     * URI matcher code for the content URI for a single pet of another shelter
+     */
+    private static final int SHELTER_PET_ID = 106;
+
+    /**
+     * URI matcher code for the content URI for the pets of every shelter at once
+     */
+    private static final int ALL_SHELTER_PETS = 107;
+
+    /**
+     * URI matcher code for the content URI for the log of changes to the pets
+     */
+    private static final int PET_CHANGES = 108;
+
+    /**
+     * Names of the URI types metrics are kept for, in matcher code order from {@link #PETS},
+     * then one for URIs that don't match
+     */
+    private static final String[] METRICS_URI_NAMES = new String[]{
+            "pets", "pets/#", "pets/search", "pets/stats", "pets/export", "shelters/#/pets",
+            "shelters/#/pets/#", "shelters/pets", "pets/changes", "unknown"
+    };
+
+    /**
+     * MIME types the export can be streamed in, default first
+     */
+    private static final String[] EXPORT_MIME_TYPES = new String[]{
+            PetContract.MIME_TYPE_CSV,
+            PetContract.MIME_TYPE_JSON
+    };
+
+    /**
+     * Most distinct change notifications sent after a batch. Beyond this, observers are told the
+     * whole table has changed instead.
+     */
+    private static final int MAX_BATCH_NOTIFICATIONS = 50;
+
+    /**
+     * Page cache size, in pages, for the provider's primary database connection, which makes
+     * every write. Readers running alongside a write keep the default cache.
+     */
+    private static final int DATABASE_CACHE_SIZE = 2000;
+
     /**
      * UriMatcher object to match a content URI to a corresponding code.
      * The input passed into the constructor represents the code to return for the root URI.
@@ -46,8 +185,19 @@ public class PetProvider extends ContentProvider {
      */
     private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 
+    /**
+     * Map from each column callers may ask for to the SQL that reads it. Projections are checked
+     * against it, and anything else is rejected, so callers can't run arbitrary expressions.
+     */
+    private static final HashMap<String, String> sPetsProjectionMap = new HashMap<>();
+
     // Static initializer. This is run the first time anything is called from this class.
     static {
+        // Every public column is currently read straight from the pets table
+        for (String column : PetEntry.PROJECTION_DETAIL) {
+            sPetsProjectionMap.put(column, column);
+        }
+
         // The calls to addURI() go here, for all of the content URI patterns that the provider
         // should recognize. All paths added to the UriMatcher have a corresponding code to return
         // when a match is found.
@@ -65,6 +215,43 @@ public class PetProvider extends ContentProvider {
         // For example, "content://com.example.android.pets/pets/3" matches, but
         // "content://com.example.android.pets/pets" (without a number at the end) doesn't match.
         sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY, PetContract.PATH_PETS + "/#", PET_ID);
+
+        // The content URI of the form "content://com.example.android.pets/pets/search/<text>"
+        // will map to the integer code {@link #PET_SEARCH}. This URI is used to find the pets
+        // whose name or breed matches the search text.
+        sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY,
+                PetContract.PATH_PETS + "/" + PetContract.PATH_SEARCH + "/*", PET_SEARCH);
+
+        // The content URI of the form "content://com.example.android.pets/pets/stats" will map
+        // to the integer code {@link #PET_STATS}. This URI is used to read the shelter statistics.
+        sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY,
+                PetContract.PATH_PETS + "/" + PetContract.PATH_STATS, PET_STATS);
+
+        // The content URI of the form "content://com.example.android.pets/pets/export" will map
+        // to the integer code {@link #PET_EXPORT}. This URI is opened as a file to export every pet.
+        sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY,
+                PetContract.PATH_PETS + "/" + PetContract.PATH_EXPORT, PET_EXPORT);
+
+        // The content URIs of the form "content://com.example.android.pets/shelters/#/pets" and
+        // "content://com.example.android.pets/shelters/#/pets/#" will map to the integer codes
+        // {@link #SHELTER_PETS} and {@link #SHELTER_PET_ID}. They work like the pets URIs, on
+        // the database of the shelter with the first number as its id.
+        sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY,
+                PetContract.PATH_SHELTERS + "/#/" + PetContract.PATH_PETS, SHELTER_PETS);
+        sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY,
+                PetContract.PATH_SHELTERS + "/#/" + PetContract.PATH_PETS + "/#", SHELTER_PET_ID);
+
+        // The content URI of the form "content://com.example.android.pets/shelters/pets" will
+        // map to the integer code {@link #ALL_SHELTER_PETS}. This URI is used to query the pets
+        // of every shelter together.
+        sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY,
+                PetContract.PATH_SHELTERS + "/" + PetContract.PATH_PETS, ALL_SHELTER_PETS);
+
+        // The content URI of the form "content://com.example.android.pets/pets/changes" will
+        // map to the integer code {@link #PET_CHANGES}. This URI is used to read the changes to
+        // the pets since a given sequence number.
+        sUriMatcher.addURI(PetContract.CONTENT_AUTHORITY,
+                PetContract.PATH_PETS + "/" + PetContract.PATH_CHANGES, PET_CHANGES);
     }
 
     /**
@@ -75,16 +262,182 @@ public class PetProvider extends ContentProvider {
         // Create and initialize a PetDbHelper object to gain access to the pets database.
         // Make sure the variable is a global variable, so it can be referenced from other
         // ContentProvider methods.
-        mDbHelper = new PetDbHelper(getContext());
+        // Use write-ahead logging, so the catalog's loader reads aren't blocked by long writes.
+        // With WAL, synchronous NORMAL is still safe from corruption.
+        mDbHelper = new PetDbHelper(getContext(), true, DATABASE_CACHE_SIZE,
+                PetDbHelper.SYNCHRONOUS_NORMAL);
+
+        mExporter = new PetExporter(mDbHelper, mDatabaseLock.readLock());
+        mBackup = new PetBackup(getContext(), mDbHelper, mDatabaseLock.readLock());
+        mShelters = new PetShelters(getContext());
+        mRowCache = new PetRowCache(getContext().getResources().getInteger(R.integer.pet_row_cache_size));
         return true;
     }
 
     /**
-     * Perform the query for the given URI. Use the given projection, selection, selection arguments, and sort order.
+     * Perform the query for the given URI, and record its metrics.
      */
     @Override
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                         String sortOrder) {
+        long startNanos = System.nanoTime();
+        Cursor cursor = null;
+        startOperation(false);
+        try {
+            cursor = queryUri(uri, projection, selection, selectionArgs, sortOrder);
+            return cursor;
+        } finally {
+            // Counting the rows runs the query, so the latency covers the real work
+            mMetrics.record(PetProviderMetrics.OPERATION_QUERY, getMetricsSlot(uri),
+                    cursor != null ? cursor.getCount() : 0, System.nanoTime() - startNanos);
+            finishOperation(false);
+        }
+    }
+
+    /**
+     * Insert new data into the provider, and record its metrics.
+     */
+    @Override
+    public Uri insert(Uri uri, ContentValues contentValues) {
+        long startNanos = System.nanoTime();
+        Uri newUri = null;
+        startOperation(true);
+        try {
+            newUri = insertUri(uri, contentValues);
+            return newUri;
+        } finally {
+            finishOperation(true);
+            mMetrics.record(PetProviderMetrics.OPERATION_INSERT, getMetricsSlot(uri),
+                    newUri != null ? 1 : 0, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Insert a batch of new rows into the provider, and record its metrics as one insert.
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        long startNanos = System.nanoTime();
+        int numRowsInserted = 0;
+        startOperation(true);
+        try {
+            numRowsInserted = bulkInsertUri(uri, values);
+            return numRowsInserted;
+        } finally {
+            finishOperation(true);
+            mMetrics.record(PetProviderMetrics.OPERATION_INSERT, getMetricsSlot(uri),
+                    numRowsInserted, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Update the data at the given URI, and record its metrics.
+     */
+    @Override
+    public int update(Uri uri, ContentValues contentValues, String selection,
+                      String[] selectionArgs) {
+        long startNanos = System.nanoTime();
+        int numRowsUpdated = 0;
+        startOperation(true);
+        try {
+            numRowsUpdated = updateUri(uri, contentValues, selection, selectionArgs);
+            return numRowsUpdated;
+        } finally {
+            finishOperation(true);
+            mMetrics.record(PetProviderMetrics.OPERATION_UPDATE, getMetricsSlot(uri),
+                    numRowsUpdated, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Delete the data at the given URI, and record its metrics.
+     */
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        long startNanos = System.nanoTime();
+        int deletedRows = 0;
+        startOperation(true);
+        try {
+            deletedRows = deleteUri(uri, selection, selectionArgs);
+            return deletedRows;
+        } finally {
+            finishOperation(true);
+            mMetrics.record(PetProviderMetrics.OPERATION_DELETE, getMetricsSlot(uri),
+                    deletedRows, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Returns the MIME type of data for the content URI, and records its metrics.
+     */
+    @Override
+    public String getType(Uri uri) {
+        long startNanos = System.nanoTime();
+        try {
+            return getTypeUri(uri);
+        } finally {
+            mMetrics.record(PetProviderMetrics.OPERATION_GET_TYPE, getMetricsSlot(uri), 0,
+                    System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Return the metrics slot for a URI: its matcher code's offset from {@link #PETS}, or the
+     * last slot for URIs that don't match.
+     */
+    private static int getMetricsSlot(Uri uri) {
+        int match = sUriMatcher.match(uri);
+        if (match == UriMatcher.NO_MATCH) {
+            return METRICS_URI_NAMES.length - 1;
+        }
+        return match - PETS;
+    }
+
+    /**
+     * Start an operation on the database. Keeps a restore from swapping the database out from
+     * under it, and tells a running backup about a write, which breaks its snapshot.
+     */
+    private void startOperation(boolean write) {
+        mDatabaseLock.readLock().lock();
+        if (write) {
+            mBackup.onWriteStarted();
+        }
+    }
+
+    /**
+     * Finish an operation started with {@link #startOperation(boolean)}.
+     */
+    private void finishOperation(boolean write) {
+        if (write) {
+            mBackup.onWriteFinished();
+        }
+        mDatabaseLock.readLock().unlock();
+    }
+
+    /**
+     * Print the provider's metrics and cache statistics, for dumpsys.
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        mMetrics.dump(writer);
+        writer.println("Row cache: " + mRowCache.size() + " rows, " + mRowCache.getHitCount() +
+                " hits, " + mRowCache.getMissCount() + " misses");
+    }
+
+    /**
+     * Perform the query for the given URI. Use the given projection, selection, selection arguments, and sort order.
+     */
+    private Cursor queryUri(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                            String sortOrder) {
+        // Other shelters' pets are in databases of their own
+        switch (sUriMatcher.match(uri)) {
+            case SHELTER_PETS:
+            case SHELTER_PET_ID:
+                return queryShelterPets(uri, projection, selection, selectionArgs, sortOrder);
+            case ALL_SHELTER_PETS:
+                return queryAllShelterPets(uri, projection, selection, selectionArgs, sortOrder);
+        }
+
         // Get readable database
         SQLiteDatabase database = mDbHelper.getReadableDatabase();
 
@@ -93,13 +446,26 @@ public class PetProvider extends ContentProvider {
 
         // Figure out if the URI matcher can match the URI to a specific code
         int match = sUriMatcher.match(uri);
+
+        // Read only the columns asked for, or a narrow default set for the URI type. The
+        // statistics URI has its own fixed columns.
+        String[] sqlProjection = null;
+        if (match == PETS || match == PET_ID || match == PET_SEARCH) {
+            if (projection == null) {
+                projection = match == PET_ID ? PetEntry.PROJECTION_DETAIL : PetEntry.PROJECTION_LIST;
+            }
+            sqlProjection = mapProjection(projection);
+        }
+
         switch (match) {
             case PETS:
                 // For the PETS code, query the pets table directly with the given
                 // projection, selection, selection arguments, and sort order. The cursor
                 // could contain multiple rows of the pets table.
-                // Perform database query on pets table
-                cursor = database.query(PetEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, sortOrder);
+                // Perform database query on pets table, sorted, filtered and paged by the URI's
+                // query parameters
+                cursor = queryPetsList(database, uri, sqlProjection, selection, selectionArgs,
+                        sortOrder);
                 break;
             case PET_ID:
                 // For the PET_ID code, extract out the ID from the URI.
@@ -114,31 +480,214 @@ public class PetProvider extends ContentProvider {
                 selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
 
                 // This will perform a query on the pets table where the _id equals 3 to return a
-                // Cursor containing that row of the table.
-                cursor = database.query(PetEntry.TABLE_NAME, projection, selection, selectionArgs,
-                        null, null, sortOrder);
+                // Cursor containing that row of the table. Plain column projections are answered
+                // from the row cache when possible.
+                if (PetRowCache.canServe(projection)) {
+                    cursor = mRowCache.query(database, ContentUris.parseId(uri), projection);
+                } else {
+                    cursor = database.query(PetEntry.VIEW_NAME, sqlProjection, selection,
+                            selectionArgs, null, null, sortOrder);
+                }
+                break;
+            case PET_SEARCH:
+                // For the PET_SEARCH code, restrict the pets table to the rows whose name or
+                // breed matches the search text, through the full-text search table. Empty
+                // search text matches every pet.
+                String searchMatch = buildSearchMatch(uri.getLastPathSegment());
+                if (!searchMatch.isEmpty()) {
+                    String searchSelection = PetEntry._ID + " IN (SELECT docid FROM " +
+                            PetEntry.SEARCH_TABLE_NAME + " WHERE " + PetEntry.SEARCH_TABLE_NAME +
+                            " MATCH ?)";
+                    if (selection != null && !selection.isEmpty()) {
+                        selection = searchSelection + " AND (" + selection + ")";
+                    } else {
+                        selection = searchSelection;
+                    }
+                    selectionArgs = prependArg(searchMatch, selectionArgs);
+                }
+
+                // Search results can be sorted, filtered and paged the same way as the full list
+                cursor = queryPetsList(database, uri, sqlProjection, selection, selectionArgs,
+                        sortOrder);
+                break;
+            case PET_STATS:
+                // For the PET_STATS code, return the memoized statistics. Projection, selection
+                // and sort order don't apply; see PetStatsEntry for the columns.
+                cursor = mStats.query(database);
+                break;
+            case PET_CHANGES:
+                // For the PET_CHANGES code, read the change log after the URI's sequence number.
+                // Projection, selection and sort order don't apply; see ChangeEntry.
+                cursor = queryChanges(database, uri);
                 break;
             default:
                 throw new IllegalArgumentException("Cannot query unknown URI " + uri);
         }
 
         // Set notification URI on the cursor.
-        // If the data at this URI changes, cursor needs to be updated
-        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        // If the data at this URI changes, cursor needs to be updated. Search results and
+        // statistics can change whenever any pet changes, so they watch the whole table, and
+        // so does the change log.
+        if (match == PET_SEARCH || match == PET_STATS || match == PET_CHANGES) {
+            cursor.setNotificationUri(getContext().getContentResolver(), PetEntry.CONTENT_URI);
+        } else {
+            cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        }
 
         return cursor;
         // TODO: MAKE SURE I'VE NULLIFIED THE CURSOR AT ITS ENDPOINT(S), TO RELEASE RESOURCES
     }
 
+    /**
+     * Query the change log for the changes after the {@link ChangeEntry#QUERY_PARAMETER_SINCE}
+     * sequence number, oldest first, up to the optional {@link PetEntry#QUERY_PARAMETER_LIMIT}.
+     * When changes after that number have already been compacted away, or the number is past
+     * the newest change, as it is after a restore, a {@link ChangeEntry#OPERATION_RESET} row
+     * comes first. Everything is read in one statement, so it is consistent with itself.
+     */
+    private static Cursor queryChanges(SQLiteDatabase database, Uri uri) {
+        long since = 0;
+        String sinceParameter = uri.getQueryParameter(ChangeEntry.QUERY_PARAMETER_SINCE);
+        if (sinceParameter != null) {
+            try {
+                since = Long.parseLong(sinceParameter);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid sequence number for " + uri);
+            }
+        }
+        String limit = "";
+        String limitParameter = uri.getQueryParameter(PetEntry.QUERY_PARAMETER_LIMIT);
+        if (limitParameter != null) {
+            try {
+                limit = " LIMIT " + Integer.parseInt(limitParameter);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid limit for " + uri);
+            }
+        }
+
+        // The newest sequence number handed out outlives the rows themselves
+        String last = "COALESCE((SELECT seq FROM sqlite_sequence WHERE name = '" +
+                ChangeEntry.TABLE_NAME + "'), 0)";
+        String firstKept = "COALESCE((SELECT MIN(" + ChangeEntry.COLUMN_SEQUENCE + ") FROM " +
+                ChangeEntry.TABLE_NAME + "), " + last + " + 1)";
+        return database.rawQuery("SELECT " + firstKept + " - 1 AS " +
+                ChangeEntry.COLUMN_SEQUENCE + ", NULL AS " + ChangeEntry.COLUMN_PET_ID + ", '" +
+                ChangeEntry.OPERATION_RESET + "' AS " + ChangeEntry.COLUMN_OPERATION +
+                ", NULL AS " + ChangeEntry.COLUMN_CHANGED_AT + " WHERE " + since + " < " +
+                firstKept + " - 1 OR " + since + " > " + last + " UNION ALL SELECT " +
+                ChangeEntry.COLUMN_SEQUENCE + ", " + ChangeEntry.COLUMN_PET_ID + ", " +
+                ChangeEntry.COLUMN_OPERATION + ", " + ChangeEntry.COLUMN_CHANGED_AT + " FROM " +
+                ChangeEntry.TABLE_NAME + " WHERE " + ChangeEntry.COLUMN_SEQUENCE + " > " + since +
+                " ORDER BY " + ChangeEntry.COLUMN_SEQUENCE + limit, null);
+    }
+
+    /**
+     * Return the sequence number of the newest change to the pets, or 0 if there is none.
+     */
+    private long getChangeSequence() {
+        startOperation(false);
+        try {
+            Cursor cursor = mDbHelper.getReadableDatabase().rawQuery(
+                    "SELECT seq FROM sqlite_sequence WHERE name = ?",
+                    new String[]{ChangeEntry.TABLE_NAME});
+            try {
+                return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            finishOperation(false);
+        }
+    }
+
+    /**
+     * Map a caller's projection to the SQL for its columns, through {@link #sPetsProjectionMap}.
+     * Throws an {@link IllegalArgumentException} for a column that isn't in the map.
+     */
+    private static String[] mapProjection(String[] projection) {
+        String[] sqlProjection = new String[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            sqlProjection[i] = mapColumn(projection[i]);
+        }
+        return sqlProjection;
+    }
+
+    /**
+     * Return the SQL for a column callers may ask for, or throw an
+     * {@link IllegalArgumentException} for any other column.
+     */
+    private static String mapColumn(String column) {
+        String sql = sPetsProjectionMap.get(column);
+        if (sql == null) {
+            throw new IllegalArgumentException("Invalid column " + column);
+        }
+        // Keep the caller's column name when the SQL is an expression
+        return sql.equals(column) ? sql : sql + " AS " + column;
+    }
+
+    /**
+     * Query the pets table with the sort order, filters and page bounds given by the URI's query
+     * parameters; see {@link PetListQuery}. Any caller supplied selection is applied on top. A
+     * page is always in the URI's sort order, or _id order, so keyset paging can seek straight
+     * to it instead of skipping over every earlier row.
+     */
+    private static Cursor queryPetsList(SQLiteDatabase database, Uri uri, String[] projection,
+                                        String selection, String[] selectionArgs,
+                                        String sortOrder) {
+        PetListQuery listQuery = PetListQuery.fromUri(uri, selection, selectionArgs);
+        return database.query(PetEntry.VIEW_NAME, projection, listQuery.getSelection(),
+                listQuery.getSelectionArgs(), null, null, listQuery.getSortOrder(sortOrder),
+                listQuery.getLimit());
+    }
+
+    /**
+     * Turn user search text into a full-text MATCH expression in which every word is matched as
+     * a prefix. Punctuation is dropped, so the text can never form an invalid expression.
+     */
+    private static String buildSearchMatch(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder match = new StringBuilder();
+        for (String term : query.replaceAll("[^\\p{L}\\p{N}]+", " ").trim().split(" ")) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            // Upper case AND, OR, NOT and NEAR are operators, so lower case them to search for them
+            if (term.equals("AND") || term.equals("OR") || term.equals("NOT") || term.equals("NEAR")) {
+                term = term.toLowerCase();
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(term).append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * Return a copy of the given selection arguments with one argument added at the front.
+     */
+    private static String[] prependArg(String arg, String[] selectionArgs) {
+        if (selectionArgs == null) {
+            return new String[]{arg};
+        }
+        String[] args = new String[selectionArgs.length + 1];
+        args[0] = arg;
+        System.arraycopy(selectionArgs, 0, args, 1, selectionArgs.length);
+        return args;
+    }
+
     /**
      * Insert new data into the provider with the given ContentValues.
      */
-    @Override
-    public Uri insert(Uri uri, ContentValues contentValues) {
+    private Uri insertUri(Uri uri, ContentValues contentValues) {
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case PETS:
                 return insertPet(uri, contentValues);
+            case SHELTER_PETS:
+                return insertShelterPet(uri, contentValues);
             default:
                 throw new IllegalArgumentException("Insertion is not supported for " + uri);
         }
@@ -151,41 +700,42 @@ public class PetProvider extends ContentProvider {
     private Uri insertPet(Uri uri, ContentValues values) {
 
         // Validate ContentValues data
-        // Check that the name is not null
-        String name = values.getAsString(PetEntry.COLUMN_PET_NAME);
-        if (name == null) {
-            throw new IllegalArgumentException("Pet requires a name");
-        }
-
-        // Check that the gender is valid
-        Integer gender = values.getAsInteger(PetEntry.COLUMN_PET_GENDER);
-        if (gender == null || !PetEntry.isValidGender(gender)) {
-            throw new IllegalArgumentException("Pet requires valid gender");
-        }
-
-        // If the weight is provided, check that it's greater than or equal to 0 kg
-        Integer weight = values.getAsInteger(PetEntry.COLUMN_PET_WEIGHT);
-        if (weight != null && weight < 0) {
-            throw new IllegalArgumentException("Pet requires valid weight");
-        }
-
+        validateNewPet(values);
 
         // Get a writeable instance of the pets database
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
 
-        // Call the insert method on the database.
-        // Method returns a long containing the row number for the new entry.
-        long id = database.insert(PetEntry.TABLE_NAME, null, values);
+        // Insert the pet, through the compiled full-row statement if the values fit it.
+        // Either way, this returns a long containing the row number for the new entry.
+        long id;
+        mStats.onInsertStarted();
+        try {
+            if (PetStatementCache.canInsert(values)) {
+                id = mStatements.insert(database, values);
+            } else {
+                id = database.insert(PetEntry.TABLE_NAME, null,
+                        toTableValues(database, mBreeds, values));
+            }
 
-        // If the ID is -1, then the insertion failed. Log an error and return null.
-        if (id == -1) {
-            Log.e(LOG_TAG, "Failed to insert row for " + uri);
-            Toast.makeText(getContext(), R.string.message_error_failed_to_add_pet, Toast.LENGTH_LONG).show();
-            return null;
+            // If the ID is -1, then the insertion failed. Log an error and return null.
+            if (id == -1) {
+                Log.e(LOG_TAG, "Failed to insert row for " + uri);
+                Toast.makeText(getContext(), R.string.message_error_failed_to_add_pet, Toast.LENGTH_LONG).show();
+                return null;
+            }
+
+            mRowCache.invalidate(id);
+
+            // Add the new pet to the shelter statistics
+            Integer weight = values.getAsInteger(PetEntry.COLUMN_PET_WEIGHT);
+            mStats.onPetInserted(values.getAsString(PetEntry.COLUMN_PET_BREED),
+                    values.getAsInteger(PetEntry.COLUMN_PET_GENDER), weight != null ? weight : 0);
+        } finally {
+            mStats.onInsertFinished();
         }
 
-        // Notify all listeners that data has changed for this URI
-        getContext().getContentResolver().notifyChange(uri, null);
+        // Notify all listeners that this pet has been added
+        notifyChange(PetEntry.buildChangeUri(id, PetEntry.OPERATION_INSERT));
 
         // Once we know the ID of the new row in the table,
         // return the new URI with the ID appended to the end of it
@@ -193,73 +743,208 @@ public class PetProvider extends ContentProvider {
     }
 
     /**
-     * Updates the data at the given selection and selection arguments, with the new ContentValues.
+     * Check that the given content values describe a valid new pet. Throws an
+     * {@link IllegalArgumentException} if they don't.
      */
-    @Override
-    public int update(Uri uri, ContentValues contentValues, String selection,
-                      String[] selectionArgs) {
-        final int match = sUriMatcher.match(uri);
-        switch (match) {
-            case PETS:
-                return updatePet(uri, contentValues, selection, selectionArgs);
-            case PET_ID:
-                // For the PET_ID code, extract out the ID from the URI,
-                // so we know which row to update. Selection will be "_id=?" and selection
-                // arguments will be a String array containing the actual ID.
-                selection = PetEntry._ID + "=?";
-                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
-                return updatePet(uri, contentValues, selection, selectionArgs);
-            default:
-                throw new IllegalArgumentException("Update is not supported for " + uri);
+    private static void validateNewPet(ContentValues values) {
+        // Check that the name is not null
+        Pet.checkName(values.getAsString(PetEntry.COLUMN_PET_NAME));
+
+        // Check that the gender is valid
+        Integer gender = values.getAsInteger(PetEntry.COLUMN_PET_GENDER);
+        if (gender == null) {
+            throw new IllegalArgumentException("Pet requires valid gender");
         }
+        Pet.checkGender(gender);
+
+        // If the weight is provided, check that it's greater than or equal to 0 kg
+        validateWeight(values);
     }
 
     /**
-     * Update pets in the database with the given content values. Apply the changes to the rows
-     * specified in the selection and selection arguments (which could be 0 or 1 or more pets).
-     * Return the number of rows that were successfully updated.
+     * Check that the given content values are valid changes to a pet. Throws an
+     * {@link IllegalArgumentException} if they aren't.
      */
-    private int updatePet(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
-
-        // If there are no values to update, then don't try to update the database
-        if (values.size() == 0) {
-            return 0;
-        }
-
-        // Validate ContentValues data
+    private static void validatePetChanges(ContentValues values) {
         // Check that the name is not null
         if (values.containsKey(PetEntry.COLUMN_PET_NAME)) {
-            String name = values.getAsString(PetEntry.COLUMN_PET_NAME);
-            if (name == null) {
-                throw new IllegalArgumentException("Pet requires a name");
-            }
+            Pet.checkName(values.getAsString(PetEntry.COLUMN_PET_NAME));
         }
 
         // Check that the gender is valid
         if (values.containsKey(PetEntry.COLUMN_PET_GENDER)) {
             Integer gender = values.getAsInteger(PetEntry.COLUMN_PET_GENDER);
-            if (gender == null || !PetEntry.isValidGender(gender)) {
+            if (gender == null) {
                 throw new IllegalArgumentException("Pet requires valid gender");
             }
+            Pet.checkGender(gender);
         }
 
         // If the weight is provided, check that it's greater than or equal to 0 kg
-        if (values.containsKey(PetEntry.COLUMN_PET_WEIGHT)) {
-            Integer weight = values.getAsInteger(PetEntry.COLUMN_PET_WEIGHT);
-            if (weight != null && weight < 0) {
-                throw new IllegalArgumentException("Pet requires valid weight");
-            }
-        }
+        validateWeight(values);
+    }
+
+    /**
+     * Check that the weight in the given content values, if there is one, is a whole number
+     * greater than or equal to 0 kg. Text that isn't a number, such as an imported "abc", is
+     * rejected rather than stored as 0.
+     */
+    private static void validateWeight(ContentValues values) {
+        if (values.get(PetEntry.COLUMN_PET_WEIGHT) == null) {
+            return;
+        }
+        Integer weight = values.getAsInteger(PetEntry.COLUMN_PET_WEIGHT);
+        if (weight == null) {
+            throw new IllegalArgumentException("Pet requires valid weight");
+        }
+        Pet.checkWeight(weight);
+    }
+
+    /**
+     * Insert a batch of new rows into the provider with the given ContentValues.
+     */
+    private int bulkInsertUri(Uri uri, ContentValues[] values) {
+        final int match = sUriMatcher.match(uri);
+        switch (match) {
+            case PETS:
+                return bulkInsertPets(uri, values);
+            case SHELTER_PETS:
+                return bulkInsertShelterPets(uri, values);
+            default:
+                throw new IllegalArgumentException("Insertion is not supported for " + uri);
+        }
+    }
+
+    /**
+     * Insert a batch of pets into the database inside a single transaction. The whole batch is
+     * validated before anything is written, so one bad row rejects the batch rather than leaving
+     * it half applied. Return the number of rows inserted.
+     */
+    private int bulkInsertPets(Uri uri, ContentValues[] values) {
+
+        // Validate every row up front
+        for (ContentValues value : values) {
+            validateNewPet(value);
+        }
+
+        // Get a writeable instance of the pets database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        int numRowsInserted = 0;
+
+        // Which rows were inserted, as a row that fails is skipped without failing the batch
+        boolean[] inserted = new boolean[values.length];
+
+        // Re-bind the cached, compiled insert statement for every row. Rows holding other
+        // columns go through the general insert path.
+        mStats.onInsertStarted();
+        try {
+            boolean successful = false;
+            database.beginTransaction();
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    ContentValues value = values[i];
+                    long id;
+                    if (PetStatementCache.canInsert(value)) {
+                        id = mStatements.insert(database, value);
+                    } else {
+                        id = database.insert(PetEntry.TABLE_NAME, null,
+                                toTableValues(database, mBreeds, value));
+                    }
+                    if (id != -1) {
+                        inserted[i] = true;
+                        numRowsInserted++;
+                    }
+                }
+                database.setTransactionSuccessful();
+                successful = true;
+            } finally {
+                database.endTransaction();
+                // Breeds added by the batch are committed or rolled back with it
+                mBreeds.onTransactionEnded(successful);
+            }
+
+            // Add the pets that were inserted to the shelter statistics
+            for (int i = 0; i < values.length; i++) {
+                if (!inserted[i]) {
+                    continue;
+                }
+                ContentValues value = values[i];
+                Integer weight = value.getAsInteger(PetEntry.COLUMN_PET_WEIGHT);
+                mStats.onPetInserted(value.getAsString(PetEntry.COLUMN_PET_BREED),
+                        value.getAsInteger(PetEntry.COLUMN_PET_GENDER),
+                        weight != null ? weight : 0);
+            }
+        } finally {
+            mStats.onInsertFinished();
+        }
+
+        // Notify all listeners once for the whole batch
+        if (numRowsInserted != 0) {
+            notifyChange(PetEntry.buildChangeUri(PetEntry.OPERATION_INSERT));
+        }
+
+        return numRowsInserted;
+    }
+
+    /**
+     * Updates the data at the given selection and selection arguments, with the new ContentValues.
+     */
+    private int updateUri(Uri uri, ContentValues contentValues, String selection,
+                          String[] selectionArgs) {
+        final int match = sUriMatcher.match(uri);
+        switch (match) {
+            case PETS:
+                return updatePet(uri, contentValues, selection, selectionArgs);
+            case PET_ID:
+                // For the PET_ID code, extract out the ID from the URI,
+                // so we know which row to update. Selection will be "_id=?" and selection
+                // arguments will be a String array containing the actual ID.
+                selection = PetEntry._ID + "=?";
+                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
+                return updatePet(uri, contentValues, selection, selectionArgs);
+            case SHELTER_PETS:
+            case SHELTER_PET_ID:
+                return updateShelterPets(uri, contentValues, selection, selectionArgs);
+            default:
+                throw new IllegalArgumentException("Update is not supported for " + uri);
+        }
+    }
+
+    /**
+     * Update pets in the database with the given content values. Apply the changes to the rows
+     * specified in the selection and selection arguments (which could be 0 or 1 or more pets).
+     * Return the number of rows that were successfully updated.
+     */
+    private int updatePet(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+
+        // If there are no values to update, then don't try to update the database
+        if (values.size() == 0) {
+            return 0;
+        }
+
+        // Validate ContentValues data
+        validatePetChanges(values);
 
         // Get writable database instance
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
 
-        int numRowsUpdates = database.update(PetEntry.TABLE_NAME,values,selection,selectionArgs);
+        // A single pet is updated through a cached, compiled statement for its set of columns
+        int numRowsUpdates;
+        if (sUriMatcher.match(uri) == PET_ID && PetStatementCache.canUpdate(values)) {
+            numRowsUpdates = mStatements.update(database, ContentUris.parseId(uri), values);
+        } else {
+            numRowsUpdates = database.update(PetEntry.TABLE_NAME,
+                    toTableValues(database, mBreeds, values), toTableSelection(selection),
+                    selectionArgs);
+        }
 
         // If any rows have been updated,
         // notify all listeners that data has changed for this URI
         if (numRowsUpdates != 0) {
-            getContext().getContentResolver().notifyChange(PetEntry.CONTENT_URI, null);
+            invalidateRowCache(uri);
+            mStats.invalidate();
+            notifyChange(getChangeUri(uri, PetEntry.OPERATION_UPDATE));
         }
 
         // Return the number of rows that were affected
@@ -269,9 +954,13 @@ public class PetProvider extends ContentProvider {
     /**
      * Delete the data at the given selection and selection arguments.
      */
-    @Override
-    public int delete(Uri uri, String selection, String[] selectionArgs) {
+    private int deleteUri(Uri uri, String selection, String[] selectionArgs) {
         Log.v(LOG_TAG,"Entering PetProvider delete method.");
+        int shelterMatch = sUriMatcher.match(uri);
+        if (shelterMatch == SHELTER_PETS || shelterMatch == SHELTER_PET_ID) {
+            return deleteShelterPets(uri, selection, selectionArgs);
+        }
+
         // Get writeable database
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
 
@@ -286,14 +975,18 @@ public class PetProvider extends ContentProvider {
                 PetContract.CONTENT_AUTHORITY + PetContract.PATH_PETS + "/#" + "for comparison");
         switch (match) {
             case PETS:
-                // Delete all rows that match the selection and selection args
-                deletedRows = database.delete(PetEntry.TABLE_NAME, selection, selectionArgs);
+                // Delete all rows that match the selection and selection args, or only the
+                // first chunk of them if a chunk size is given
+                if (isChunkedDelete(uri)) {
+                    deletedRows = deletePetsChunk(database, uri, selection, selectionArgs);
+                } else {
+                    deletedRows = database.delete(PetEntry.TABLE_NAME, toTableSelection(selection),
+                            selectionArgs);
+                }
                 break;
             case PET_ID:
-                // Delete a single row given by the ID in the URI
-                selection = PetEntry._ID + "=?";
-                selectionArgs = new String[] { String.valueOf(ContentUris.parseId(uri)) };
-                deletedRows = database.delete(PetEntry.TABLE_NAME, selection, selectionArgs);
+                // Delete a single row given by the ID in the URI, through the cached statement
+                deletedRows = mStatements.delete(database, ContentUris.parseId(uri));
                 break;
             default:
                 Log.v(LOG_TAG,"In PetProvider delete method; did NOT match URI to either case...");
@@ -303,23 +996,830 @@ public class PetProvider extends ContentProvider {
         // If rows have been deleted,
         // notify all listeners that data has changed for this URI
         if (deletedRows != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            invalidateRowCache(uri);
+            mStats.invalidate();
+            notifyChange(getChangeUri(uri, PetEntry.OPERATION_DELETE));
         }
 
         return deletedRows;
     }
 
     /**
-     * Returns the MIME type of data for the content URI.
+     * Return whether a delete from a pets URI asks for chunked deletion. A page's limit is
+     * rejected rather than taken for a chunk size, so a page URI passed to delete() can't quietly
+     * delete only part of the matching pets.
+     */
+    private static boolean isChunkedDelete(Uri uri) {
+        if (uri.getQueryParameter(PetEntry.QUERY_PARAMETER_LIMIT) != null) {
+            throw new IllegalArgumentException("Delete doesn't take a page limit for " + uri);
+        }
+        return uri.getQueryParameter(PetEntry.QUERY_PARAMETER_CHUNK) != null;
+    }
+
+    /**
+     * Delete the first chunk, in _id order, of the pets matching the selection. The chunk size is
+     * the {@link PetEntry#QUERY_PARAMETER_CHUNK} query parameter. The chunk is deleted as one
+     * _id range in its own short transaction, so deleting a large table chunk by chunk never
+     * holds the write lock for long. Return the number of rows deleted.
+     */
+    private int deletePetsChunk(SQLiteDatabase database, Uri uri, String selection,
+                                String[] selectionArgs) {
+        int limit;
+        try {
+            limit = Integer.parseInt(uri.getQueryParameter(PetEntry.QUERY_PARAMETER_CHUNK));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid chunk size for " + uri);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive for " + uri);
+        }
+
+        boolean hasSelection = selection != null && !selection.isEmpty();
+        String where = hasSelection ? " WHERE " + selection : "";
+
+        database.beginTransaction();
+        try {
+            // Find the last _id of the chunk
+            Cursor cursor = database.rawQuery("SELECT MAX(" + PetEntry._ID + ") FROM (SELECT " +
+                    PetEntry._ID + " FROM " + PetEntry.VIEW_NAME + where + " ORDER BY " +
+                    PetEntry._ID + " LIMIT " + limit + ")", selectionArgs);
+            long lastId;
+            try {
+                if (!cursor.moveToFirst() || cursor.isNull(0)) {
+                    database.setTransactionSuccessful();
+                    return 0;
+                }
+                lastId = cursor.getLong(0);
+            } finally {
+                cursor.close();
+            }
+
+            // Delete everything matching up to and including it
+            String chunkSelection = PetEntry._ID + " <= " + lastId;
+            if (hasSelection) {
+                chunkSelection = chunkSelection + " AND " + toTableSelection(selection);
+            }
+            int deletedRows = database.delete(PetEntry.TABLE_NAME, chunkSelection, selectionArgs);
+            database.setTransactionSuccessful();
+            return deletedRows;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Query the pets of another shelter, or a single one of them, in the shelter's database.
+     * The app's own shelter is served by the pets URIs.
+     */
+    private Cursor queryShelterPets(Uri uri, String[] projection, String selection,
+                                    String[] selectionArgs, String sortOrder) {
+        long shelterId = getShelterId(uri);
+        if (shelterId == ShelterEntry.DEFAULT_SHELTER_ID) {
+            return queryUri(toDefaultShelterUri(uri), projection, selection, selectionArgs,
+                    sortOrder);
+        }
+
+        boolean single = sUriMatcher.match(uri) == SHELTER_PET_ID;
+        if (projection == null) {
+            projection = single ? PetEntry.PROJECTION_DETAIL : PetEntry.PROJECTION_LIST;
+        }
+        String[] sqlProjection = mapProjection(projection);
+
+        // A shelter without a database has no pets, and reading it doesn't create one
+        Cursor cursor;
+        PetShelters.Shelter shelter = mShelters.acquireExisting(shelterId);
+        if (shelter == null) {
+            cursor = new MatrixCursor(projection, 0);
+        } else {
+            try {
+                SQLiteDatabase database = shelter.getDatabase();
+                if (single) {
+                    cursor = database.query(PetEntry.VIEW_NAME, sqlProjection,
+                            PetEntry._ID + "=?",
+                            new String[]{String.valueOf(ContentUris.parseId(uri))}, null, null,
+                            sortOrder);
+                } else {
+                    cursor = queryPetsList(database, uri, sqlProjection, selection,
+                            selectionArgs, sortOrder);
+                }
+            } catch (RuntimeException e) {
+                mShelters.release(shelter);
+                throw e;
+            }
+
+            // Keep the shelter's database open until the cursor has been read and closed
+            cursor = mShelters.holdUntilClosed(shelter, cursor);
+        }
+        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        return cursor;
+    }
+
+    /**
+     * Query the pets of every shelter, the app's own first, and merge them into one cursor in
+     * the order given by the URI's sort parameter. Each shelter is filtered and limited by the
+     * URI's query parameters, and the merged result is cut to the limit again. A sort order is
+     * rejected, as the merge could only keep the order of the sort parameter.
+     */
+    private Cursor queryAllShelterPets(Uri uri, String[] projection, String selection,
+                                       String[] selectionArgs, String sortOrder) {
+        // Pages would need a position in every shelter at once
+        if (uri.getQueryParameter(PetEntry.QUERY_PARAMETER_AFTER_ID) != null
+                || uri.getQueryParameter(PetEntry.QUERY_PARAMETER_AFTER_VALUE) != null
+                || uri.getQueryParameter(PetEntry.QUERY_PARAMETER_AFTER_NAME) != null) {
+            throw new IllegalArgumentException("Paging is not supported across shelters: " + uri);
+        }
+        if (sortOrder != null && !sortOrder.isEmpty()) {
+            throw new IllegalArgumentException("Pets of every shelter are ordered by the sort " +
+                    "parameter, not a sort order: " + uri);
+        }
+        if (projection == null) {
+            projection = appendColumn(PetEntry.PROJECTION_LIST, ShelterEntry.COLUMN_SHELTER_ID);
+        }
+
+        // The rows are merged by the sort column, so it has to be read
+        PetListQuery listQuery = PetListQuery.fromUri(uri, selection, selectionArgs);
+        int sortColumn = -1;
+        if (listQuery.getSortColumn() != null) {
+            sortColumn = indexOf(projection, listQuery.getSortColumn());
+            if (sortColumn == -1) {
+                projection = appendColumn(projection, listQuery.getSortColumn());
+                sortColumn = projection.length - 1;
+            }
+        }
+
+        long[] otherIds = mShelters.getShelterIds();
+        long[] shelterIds = new long[otherIds.length + 1];
+        shelterIds[0] = ShelterEntry.DEFAULT_SHELTER_ID;
+        System.arraycopy(otherIds, 0, shelterIds, 1, otherIds.length);
+
+        Cursor[] cursors = new Cursor[shelterIds.length];
+        try {
+            for (int i = 0; i < shelterIds.length; i++) {
+                String[] sqlProjection = mapShelterProjection(projection, shelterIds[i]);
+                if (shelterIds[i] == ShelterEntry.DEFAULT_SHELTER_ID) {
+                    cursors[i] = queryPetsList(mDbHelper.getReadableDatabase(), uri,
+                            sqlProjection, selection, selectionArgs, null);
+                    continue;
+                }
+                PetShelters.Shelter shelter = mShelters.acquire(shelterIds[i]);
+                Cursor shelterCursor;
+                try {
+                    shelterCursor = queryPetsList(shelter.getDatabase(), uri, sqlProjection,
+                            selection, selectionArgs, null);
+                } catch (RuntimeException e) {
+                    mShelters.release(shelter);
+                    throw e;
+                }
+                // Closing the merged cursor closes this one and hands the shelter back
+                cursors[i] = mShelters.holdUntilClosed(shelter, shelterCursor);
+            }
+        } catch (RuntimeException e) {
+            for (Cursor cursor : cursors) {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            throw e;
+        }
+
+        String limit = listQuery.getLimit();
+        Cursor cursor = new SortedMergeCursor(cursors, sortColumn,
+                limit != null ? Integer.parseInt(limit) : -1);
+
+        // The pets of every shelter, the app's own included, are below the base URI
+        cursor.setNotificationUri(getContext().getContentResolver(), PetContract.BASE_CONTENT_URI);
+        return cursor;
+    }
+
+    /**
+     * Insert a new pet into another shelter's database. Return the new pet's URI, or null if
+     * the insert failed.
+     */
+    private Uri insertShelterPet(Uri uri, ContentValues values) {
+        long shelterId = getShelterId(uri);
+        if (shelterId == ShelterEntry.DEFAULT_SHELTER_ID) {
+            return insertUri(toDefaultShelterUri(uri), values);
+        }
+        validateNewPet(values);
+
+        long id;
+        PetShelters.Shelter shelter = mShelters.acquire(shelterId);
+        try {
+            SQLiteDatabase database = shelter.getDatabase();
+            id = database.insert(PetEntry.TABLE_NAME, null,
+                    toTableValues(database, shelter.breeds, values));
+        } finally {
+            mShelters.release(shelter);
+        }
+
+        if (id == -1) {
+            Log.e(LOG_TAG, "Failed to insert row for " + uri);
+            return null;
+        }
+        Uri petUri = ShelterEntry.buildPetUri(shelterId, id);
+        notifyChange(petUri);
+        return petUri;
+    }
+
+    /**
+     * Insert new pets into another shelter's database inside a single transaction. Return the
+     * number of pets inserted.
+     */
+    private int bulkInsertShelterPets(Uri uri, ContentValues[] values) {
+        long shelterId = getShelterId(uri);
+        if (shelterId == ShelterEntry.DEFAULT_SHELTER_ID) {
+            return bulkInsertUri(toDefaultShelterUri(uri), values);
+        }
+        for (ContentValues value : values) {
+            validateNewPet(value);
+        }
+
+        int numRowsInserted = 0;
+        PetShelters.Shelter shelter = mShelters.acquire(shelterId);
+        try {
+            SQLiteDatabase database = shelter.getDatabase();
+            boolean successful = false;
+            database.beginTransaction();
+            try {
+                for (ContentValues value : values) {
+                    if (database.insert(PetEntry.TABLE_NAME, null,
+                            toTableValues(database, shelter.breeds, value)) != -1) {
+                        numRowsInserted++;
+                    }
+                }
+                database.setTransactionSuccessful();
+                successful = true;
+            } finally {
+                database.endTransaction();
+                // Breeds added by the batch are committed or rolled back with it
+                shelter.breeds.onTransactionEnded(successful);
+            }
+        } finally {
+            mShelters.release(shelter);
+        }
+
+        if (numRowsInserted != 0) {
+            notifyChange(ShelterEntry.buildPetsUri(shelterId));
+        }
+        return numRowsInserted;
+    }
+
+    /**
+     * Update the pets of another shelter that match the selection, or the single pet at the
+     * URI. Return the number of rows updated.
+     */
+    private int updateShelterPets(Uri uri, ContentValues values, String selection,
+                                  String[] selectionArgs) {
+        long shelterId = getShelterId(uri);
+        if (shelterId == ShelterEntry.DEFAULT_SHELTER_ID) {
+            return updateUri(toDefaultShelterUri(uri), values, selection, selectionArgs);
+        }
+        if (values.size() == 0) {
+            return 0;
+        }
+        validatePetChanges(values);
+
+        Uri changeUri = ShelterEntry.buildPetsUri(shelterId);
+        if (sUriMatcher.match(uri) == SHELTER_PET_ID) {
+            long id = ContentUris.parseId(uri);
+            selection = PetEntry._ID + "=?";
+            selectionArgs = new String[]{String.valueOf(id)};
+            changeUri = ShelterEntry.buildPetUri(shelterId, id);
+        }
+
+        // A shelter without a database has no pets to update
+        PetShelters.Shelter shelter = mShelters.acquireExisting(shelterId);
+        if (shelter == null) {
+            return 0;
+        }
+        int numRowsUpdated;
+        try {
+            SQLiteDatabase database = shelter.getDatabase();
+            numRowsUpdated = database.update(PetEntry.TABLE_NAME,
+                    toTableValues(database, shelter.breeds, values), toTableSelection(selection),
+                    selectionArgs);
+        } finally {
+            mShelters.release(shelter);
+        }
+
+        if (numRowsUpdated != 0) {
+            notifyChange(changeUri);
+        }
+        return numRowsUpdated;
+    }
+
+    /**
+     * Delete the pets of another shelter that match the selection, or only the first chunk of
+     * them if a limit is given, or the single pet at the URI. Only that shelter's database is
+     * touched. Return the number of rows deleted.
+     */
+    private int deleteShelterPets(Uri uri, String selection, String[] selectionArgs) {
+        long shelterId = getShelterId(uri);
+        if (shelterId == ShelterEntry.DEFAULT_SHELTER_ID) {
+            return deleteUri(toDefaultShelterUri(uri), selection, selectionArgs);
+        }
+
+        boolean single = sUriMatcher.match(uri) == SHELTER_PET_ID;
+        Uri changeUri = ShelterEntry.buildPetsUri(shelterId);
+        if (single) {
+            long id = ContentUris.parseId(uri);
+            selection = PetEntry._ID + "=?";
+            selectionArgs = new String[]{String.valueOf(id)};
+            changeUri = ShelterEntry.buildPetUri(shelterId, id);
+        }
+
+        // A shelter without a database has no pets to delete
+        PetShelters.Shelter shelter = mShelters.acquireExisting(shelterId);
+        if (shelter == null) {
+            return 0;
+        }
+        int deletedRows;
+        try {
+            SQLiteDatabase database = shelter.getDatabase();
+            if (!single && isChunkedDelete(uri)) {
+                deletedRows = deletePetsChunk(database, uri, selection, selectionArgs);
+            } else {
+                deletedRows = database.delete(PetEntry.TABLE_NAME, toTableSelection(selection),
+                        selectionArgs);
+            }
+        } finally {
+            mShelters.release(shelter);
+        }
+
+        if (deletedRows != 0) {
+            notifyChange(changeUri);
+        }
+        return deletedRows;
+    }
+
+    /**
+     * Return the shelter id in a shelter URI.
+     */
+    private static long getShelterId(Uri uri) {
+        try {
+            return Long.parseLong(uri.getPathSegments().get(1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid shelter id in " + uri);
+        }
+    }
+
+    /**
+     * Return the pets URI the app's own shelter is served at, for one of its shelter URIs.
+     */
+    private static Uri toDefaultShelterUri(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        Uri.Builder builder = PetEntry.CONTENT_URI.buildUpon();
+        if (segments.size() > 3) {
+            builder.appendPath(segments.get(3));
+        }
+        return builder.encodedQuery(uri.getEncodedQuery()).build();
+    }
+
+    /**
+     * Map a projection for a query across shelters, reading the shelter id column as the given
+     * shelter's id.
+     */
+    private static String[] mapShelterProjection(String[] projection, long shelterId) {
+        String[] sqlProjection = new String[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            if (ShelterEntry.COLUMN_SHELTER_ID.equals(projection[i])) {
+                sqlProjection[i] = shelterId + " AS " + ShelterEntry.COLUMN_SHELTER_ID;
+            } else {
+                sqlProjection[i] = mapColumn(projection[i]);
+            }
+        }
+        return sqlProjection;
+    }
+
+    private static String[] appendColumn(String[] projection, String column) {
+        String[] result = new String[projection.length + 1];
+        System.arraycopy(projection, 0, result, 0, projection.length);
+        result[projection.length] = column;
+        return result;
+    }
+
+    private static int indexOf(String[] projection, String column) {
+        for (int i = 0; i < projection.length; i++) {
+            if (projection[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the given pet, or null if there is no such pet. For {@link PetStore}.
+     */
+    Pet getPet(long id) {
+        startOperation(false);
+        try {
+            return mRowCache.getPet(mDbHelper.getReadableDatabase(), id);
+        } finally {
+            finishOperation(false);
+        }
+    }
+
+    /**
+     * Return up to limit pets with an _id greater than afterId, in _id order. For
+     * {@link PetStore}.
+     */
+    List<Pet> getPets(long afterId, int limit) {
+        startOperation(false);
+        try {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Page size must be positive");
+            }
+            Cursor cursor = mDbHelper.getReadableDatabase().query(PetEntry.VIEW_NAME,
+                    PetRowCache.COLUMNS, PetEntry._ID + " > ?",
+                    new String[]{Long.toString(afterId)}, null, null, PetEntry._ID,
+                    Integer.toString(limit));
+            try {
+                // Columns are read by position, in PetRowCache.COLUMNS order
+                List<Pet> pets = new ArrayList<>(cursor.getCount());
+                while (cursor.moveToNext()) {
+                    pets.add(new Pet(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                            cursor.getInt(3), cursor.getInt(4)));
+                }
+                return pets;
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            finishOperation(false);
+        }
+    }
+
+    /**
+     * Insert the given pets, ignoring their ids, inside a single transaction. Return the new
+     * row ids, in order, with -1 for any row that failed to insert. For {@link PetStore}.
+     */
+    long[] insertPets(List<Pet> pets) {
+        startOperation(true);
+        try {
+            SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+            long[] ids = new long[pets.size()];
+            boolean inserted = false;
+            mStats.onInsertStarted();
+            try {
+                boolean successful = false;
+                database.beginTransaction();
+                try {
+                    for (int i = 0; i < ids.length; i++) {
+                        Pet pet = pets.get(i);
+                        ids[i] = mStatements.insert(database, pet.name, pet.breed, pet.gender,
+                                pet.weight);
+                    }
+                    database.setTransactionSuccessful();
+                    successful = true;
+                } finally {
+                    database.endTransaction();
+                    // Breeds added by the batch are committed or rolled back with it
+                    mBreeds.onTransactionEnded(successful);
+                }
+
+                for (int i = 0; i < ids.length; i++) {
+                    if (ids[i] != -1) {
+                        Pet pet = pets.get(i);
+                        mRowCache.invalidate(ids[i]);
+                        mStats.onPetInserted(pet.breed, pet.gender, pet.weight);
+                        inserted = true;
+                    }
+                }
+            } finally {
+                mStats.onInsertFinished();
+            }
+
+            // Notify all listeners once, with the row if there is only one
+            if (ids.length == 1 && inserted) {
+                notifyChange(PetEntry.buildChangeUri(ids[0], PetEntry.OPERATION_INSERT));
+            } else if (inserted) {
+                notifyChange(PetEntry.buildChangeUri(PetEntry.OPERATION_INSERT));
+            }
+            return ids;
+        } finally {
+            finishOperation(true);
+        }
+    }
+
+    /**
+     * Overwrite the saved pet with the same id. Return the number of rows updated. For
+     * {@link PetStore}.
+     */
+    int updatePet(Pet pet) {
+        startOperation(true);
+        try {
+            int numRowsUpdated = mStatements.update(mDbHelper.getWritableDatabase(), pet);
+            if (numRowsUpdated != 0) {
+                mRowCache.invalidate(pet.id);
+                mStats.invalidate();
+                notifyChange(PetEntry.buildChangeUri(pet.id, PetEntry.OPERATION_UPDATE));
+            }
+            return numRowsUpdated;
+        } finally {
+            finishOperation(true);
+        }
+    }
+
+    /**
+     * Delete the pet with the given id. Return the number of rows deleted. For {@link PetStore}.
+     */
+    int deletePet(long id) {
+        startOperation(true);
+        try {
+            int deletedRows = mStatements.delete(mDbHelper.getWritableDatabase(), id);
+            if (deletedRows != 0) {
+                mRowCache.invalidate(id);
+                mStats.invalidate();
+                notifyChange(PetEntry.buildChangeUri(id, PetEntry.OPERATION_DELETE));
+            }
+            return deletedRows;
+        } finally {
+            finishOperation(true);
+        }
+    }
+
+    /**
+     * Apply a batch of operations inside a single transaction. Change notifications raised by the
+     * individual operations are held back until the batch has committed, and then sent once per
+     * distinct URI. Operations marked with {@link ContentProviderOperation#isYieldAllowed()}
+     * let other threads get at the database between long runs of work.
      */
     @Override
-    public String getType(Uri uri) {
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        startOperation(true);
+        try {
+            return applyBatchOperations(operations);
+        } finally {
+            finishOperation(true);
+        }
+    }
+
+    /**
+     * Apply a batch of operations inside a single transaction, and then send the change
+     * notifications they raised.
+     */
+    private ContentProviderResult[] applyBatchOperations(
+            ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+        // Get writeable database
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        Set<Uri> pendingNotifications = new LinkedHashSet<>();
+        mPendingNotifications.set(pendingNotifications);
+
+        // Notifications for the work committed by the last yield, sent even if a later
+        // operation fails and rolls back the rest
+        Set<Uri> committedNotifications = new LinkedHashSet<>();
+
+        boolean successful = false;
+        database.beginTransaction();
+        try {
+            final int numOperations = operations.size();
+            ContentProviderResult[] results = new ContentProviderResult[numOperations];
+            for (int i = 0; i < numOperations; i++) {
+                ContentProviderOperation operation = operations.get(i);
+                if (i > 0 && operation.isYieldAllowed()) {
+                    // Commits the work done so far and lets any waiting readers or writers in
+                    if (database.yieldIfContendedSafely()) {
+                        committedNotifications = new LinkedHashSet<>(pendingNotifications);
+                    }
+                }
+                results[i] = operation.apply(this, results, i);
+            }
+            database.setTransactionSuccessful();
+            successful = true;
+            return results;
+        } finally {
+            database.endTransaction();
+            mPendingNotifications.remove();
+
+            // Readers may have cached rows or statistics the batch changed before it committed
+            mRowCache.invalidateAll();
+            mStats.invalidate();
+            // Breeds added by the batch are committed with it, or gone again. Any committed by
+            // a yield before a failure are simply looked up again.
+            mBreeds.onTransactionEnded(successful);
+
+            // If a later operation failed, only the part of the batch committed by a yield
+            // changed anything
+            Set<Uri> notifications = successful ? pendingNotifications : committedNotifications;
+            if (notifications.size() > MAX_BATCH_NOTIFICATIONS) {
+                // Too many rows changed to be worth telling observers about one by one
+                getContext().getContentResolver().notifyChange(PetEntry.CONTENT_URI, null);
+            } else {
+                for (Uri uri : notifications) {
+                    getContext().getContentResolver().notifyChange(uri, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the pets at the given URI from the row cache: the single pet for a {@link #PET_ID}
+     * URI, or every pet otherwise.
+     */
+    private void invalidateRowCache(Uri uri) {
+        if (sUriMatcher.match(uri) == PET_ID) {
+            mRowCache.invalidate(ContentUris.parseId(uri));
+        } else {
+            mRowCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Return a copy of the given values for writing to a pets table, with the breed name
+     * swapped for its id in the same database's breeds table.
+     */
+    private static ContentValues toTableValues(SQLiteDatabase database, PetBreeds breeds,
+                                               ContentValues values) {
+        if (!values.containsKey(PetEntry.COLUMN_PET_BREED)) {
+            return values;
+        }
+        ContentValues tableValues = new ContentValues(values);
+        tableValues.remove(PetEntry.COLUMN_PET_BREED);
+        Long breedId = breeds.resolve(database, values.getAsString(PetEntry.COLUMN_PET_BREED));
+        tableValues.put(PetEntry.COLUMN_PET_BREED_ID, breedId);
+        return tableValues;
+    }
+
+    /**
+     * Return the given selection on the pets view as a selection on the pets table, so callers
+     * can still select on the breed name when updating or deleting.
+     */
+    private static String toTableSelection(String selection) {
+        if (selection == null || selection.isEmpty()) {
+            return selection;
+        }
+        return PetEntry._ID + " IN (SELECT " + PetEntry._ID + " FROM " + PetEntry.VIEW_NAME +
+                " WHERE " + selection + ")";
+    }
+
+    /**
+     * Return the URI to notify when the pets at the given URI have changed: the single pet's URI
+     * for a {@link #PET_ID} URI, or the whole table otherwise. Either way, the URI carries the
+     * kind of change as a hint for observers.
+     */
+    private static Uri getChangeUri(Uri uri, String operation) {
+        if (sUriMatcher.match(uri) == PET_ID) {
+            return PetEntry.buildChangeUri(ContentUris.parseId(uri), operation);
+        }
+        return PetEntry.buildChangeUri(operation);
+    }
+
+    /**
+     * Notify all listeners that data has changed for the given URI. If a batch is being applied
+     * on this thread, the notification is deferred until the batch has committed.
+     */
+    private void notifyChange(Uri uri) {
+        Set<Uri> pendingNotifications = mPendingNotifications.get();
+        if (pendingNotifications != null) {
+            pendingNotifications.add(uri);
+        } else {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * Call a provider-defined method. See {@link PetContract#METHOD_GET_ROW_CACHE_STATS},
+     * {@link PetContract#METHOD_GET_METRICS}, {@link PetContract#METHOD_BACKUP},
+     * {@link PetContract#METHOD_GET_BACKUP_STATUS}, {@link PetContract#METHOD_RESTORE} and
+     * {@link PetContract#METHOD_GET_CHANGE_SEQUENCE}.
+     */
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (PetContract.METHOD_GET_ROW_CACHE_STATS.equals(method)) {
+            Bundle stats = new Bundle();
+            stats.putInt(PetContract.KEY_ROW_CACHE_HITS, mRowCache.getHitCount());
+            stats.putInt(PetContract.KEY_ROW_CACHE_MISSES, mRowCache.getMissCount());
+            stats.putInt(PetContract.KEY_ROW_CACHE_SIZE, mRowCache.size());
+            return stats;
+        }
+        if (PetContract.METHOD_GET_METRICS.equals(method)) {
+            return mMetrics.toBundle();
+        }
+        if (PetContract.METHOD_BACKUP.equals(method)) {
+            // Copied on the backup's own thread, which only keeps a restore out; reads and
+            // writes carry on while it runs
+            return mBackup.startBackup(arg);
+        }
+        if (PetContract.METHOD_GET_BACKUP_STATUS.equals(method)) {
+            return mBackup.getStatus();
+        }
+        if (PetContract.METHOD_RESTORE.equals(method)) {
+            restore(arg);
+            return null;
+        }
+        if (PetContract.METHOD_GET_CHANGE_SEQUENCE.equals(method)) {
+            Bundle sequence = new Bundle();
+            sequence.putLong(PetContract.KEY_CHANGE_SEQUENCE, getChangeSequence());
+            return sequence;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Replace the database with the named backup, and then notify every observer of the
+     * provider. Operations in progress finish first, and new ones wait until the backup has been
+     * swapped in. Closing the old database leaves cursors opened before the restore unable to
+     * read past the rows they already hold, so observers are told to reload everything.
+     */
+    private void restore(String name) {
+        try {
+            // Checking and copying the backup can take a while, so do it before locking
+            File restored = mBackup.prepareRestore(name);
+            mDatabaseLock.writeLock().lock();
+            try {
+                // Compiled statements and cached rows all belong to the old database
+                mStatements.clear();
+                mBackup.replaceDatabase(restored);
+                mRowCache.invalidateAll();
+                mStats.invalidate();
+                mBreeds.invalidate();
+
+                // Open and migrate the restored database now, so any problem shows up here
+                mDbHelper.getWritableDatabase();
+            } finally {
+                mDatabaseLock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to restore the shelter database", e);
+        }
+
+        // Every URI the provider serves is below the base URI
+        getContext().getContentResolver().notifyChange(PetContract.BASE_CONTENT_URI, null);
+    }
+
+    /**
+     * Open the export URI as a CSV stream. The pets are written into a pipe on a background
+     * thread as the caller reads it.
+     */
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        if (sUriMatcher.match(uri) != PET_EXPORT || !"r".equals(mode)) {
+            throw new FileNotFoundException("Cannot open " + uri + " in mode " + mode);
+        }
+        return openPipeHelper(uri, PetContract.MIME_TYPE_CSV, null, PetContract.MIME_TYPE_CSV, mExporter);
+    }
+
+    /**
+     * Open the export URI as a stream in the first format matching the MIME type filter.
+     */
+    @Override
+    public AssetFileDescriptor openTypedAssetFile(Uri uri, String mimeTypeFilter, Bundle opts)
+            throws FileNotFoundException {
+        if (sUriMatcher.match(uri) != PET_EXPORT) {
+            return super.openTypedAssetFile(uri, mimeTypeFilter, opts);
+        }
+        for (String mimeType : EXPORT_MIME_TYPES) {
+            if (ClipDescription.compareMimeTypes(mimeType, mimeTypeFilter)) {
+                ParcelFileDescriptor pipe = openPipeHelper(uri, mimeType, opts, mimeType, mExporter);
+                return new AssetFileDescriptor(pipe, 0, AssetFileDescriptor.UNKNOWN_LENGTH);
+            }
+        }
+        throw new FileNotFoundException("Cannot export " + uri + " as " + mimeTypeFilter);
+    }
+
+    /**
+     * Returns the MIME types the content URI can be streamed in that match the filter.
+     */
+    @Override
+    public String[] getStreamTypes(Uri uri, String mimeTypeFilter) {
+        if (sUriMatcher.match(uri) != PET_EXPORT) {
+            return null;
+        }
+        ArrayList<String> mimeTypes = new ArrayList<>();
+        for (String mimeType : EXPORT_MIME_TYPES) {
+            if (ClipDescription.compareMimeTypes(mimeType, mimeTypeFilter)) {
+                mimeTypes.add(mimeType);
+            }
+        }
+        return mimeTypes.isEmpty() ? null : mimeTypes.toArray(new String[mimeTypes.size()]);
+    }
+
+    /**
+     * Returns the MIME type of data for the content URI.
+     */
+    private String getTypeUri(Uri uri) {
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case PETS:
                 return PetEntry.CONTENT_LIST_TYPE;
             case PET_ID:
                 return PetEntry.CONTENT_ITEM_TYPE;
+            case PET_SEARCH:
+                return PetEntry.CONTENT_LIST_TYPE;
+            case PET_STATS:
+                return PetContract.PetStatsEntry.CONTENT_TYPE;
+            case PET_CHANGES:
+                return ChangeEntry.CONTENT_TYPE;
+            case PET_EXPORT:
+                return PetContract.MIME_TYPE_CSV;
+            case SHELTER_PETS:
+            case ALL_SHELTER_PETS:
+                return PetEntry.CONTENT_LIST_TYPE;
+            case SHELTER_PET_ID:
+                return PetEntry.CONTENT_ITEM_TYPE;
             default:
                 throw new IllegalStateException("Unknown URI " + uri + " with match " + match);
         }
@@ -0,0 +1,155 @@
+package com.example.android.pets.data;
+
+import android.os.Bundle;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Call counts, rows touched and latency histograms for {@link PetProvider}, kept per operation
+ * and per matched URI. Recording is lock-free, so it is cheap enough to leave on all the time.
+ *
+ * Latencies are counted in power-of-two buckets of microseconds: bucket 0 holds calls under
+ * 1 µs, and bucket i holds calls from 2^(i-1) up to 2^i µs. The last bucket holds everything
+ * slower.
+ */
+class PetProviderMetrics {
+
+    /** Operations measured */
+    static final int OPERATION_QUERY = 0;
+    static final int OPERATION_INSERT = 1;
+    static final int OPERATION_UPDATE = 2;
+    static final int OPERATION_DELETE = 3;
+    static final int OPERATION_GET_TYPE = 4;
+
+    private static final String[] OPERATION_NAMES = new String[]{
+            "query", "insert", "update", "delete", "getType"
+    };
+
+    /** Number of latency histogram buckets */
+    static final int HISTOGRAM_BUCKETS = 24;
+
+    /** Names of the URI types measured, indexed by URI slot */
+    private final String[] mUriNames;
+
+    private final AtomicLongArray mCalls;
+
+    private final AtomicLongArray mRows;
+
+    private final AtomicLongArray mTotalNanos;
+
+    private final AtomicLongArray mHistograms;
+
+    /**
+     * Constructs a new {@link PetProviderMetrics}.
+     *
+     * @param uriNames names of the URI types to keep metrics for, indexed by URI slot
+     */
+    PetProviderMetrics(String[] uriNames) {
+        mUriNames = uriNames;
+        int slots = OPERATION_NAMES.length * uriNames.length;
+        mCalls = new AtomicLongArray(slots);
+        mRows = new AtomicLongArray(slots);
+        mTotalNanos = new AtomicLongArray(slots);
+        mHistograms = new AtomicLongArray(slots * HISTOGRAM_BUCKETS);
+    }
+
+    /**
+     * Record one call.
+     *
+     * @param operation one of the OPERATION_ constants
+     * @param uriSlot   index of the URI type called
+     * @param rows      number of rows returned or changed
+     * @param nanos     time the call took
+     */
+    void record(int operation, int uriSlot, long rows, long nanos) {
+        int slot = operation * mUriNames.length + uriSlot;
+        mCalls.incrementAndGet(slot);
+        mRows.addAndGet(slot, rows);
+        mTotalNanos.addAndGet(slot, nanos);
+        mHistograms.incrementAndGet(slot * HISTOGRAM_BUCKETS + getBucket(nanos / 1000));
+    }
+
+    /**
+     * Return the metrics of every operation and URI type called so far. Each is a Bundle under
+     * the key "operation uri", holding the keys described in {@link PetContract}.
+     */
+    Bundle toBundle() {
+        Bundle metrics = new Bundle();
+        for (int operation = 0; operation < OPERATION_NAMES.length; operation++) {
+            for (int uriSlot = 0; uriSlot < mUriNames.length; uriSlot++) {
+                int slot = operation * mUriNames.length + uriSlot;
+                long calls = mCalls.get(slot);
+                if (calls == 0) {
+                    continue;
+                }
+                Bundle metric = new Bundle();
+                metric.putLong(PetContract.KEY_METRIC_CALLS, calls);
+                metric.putLong(PetContract.KEY_METRIC_ROWS, mRows.get(slot));
+                metric.putLong(PetContract.KEY_METRIC_TOTAL_MICROS, mTotalNanos.get(slot) / 1000);
+                metric.putLongArray(PetContract.KEY_METRIC_LATENCY_HISTOGRAM, getHistogram(slot));
+                metrics.putBundle(OPERATION_NAMES[operation] + " " + mUriNames[uriSlot], metric);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Print the metrics as a table, for dumpsys.
+     */
+    void dump(PrintWriter writer) {
+        writer.println("PetProvider metrics (latencies in us; percentiles are bucket upper bounds):");
+        writer.printf("  %-8s %-12s %10s %12s %10s %10s %10s %10s%n",
+                "op", "uri", "calls", "rows", "mean", "p50", "p90", "p99");
+        for (int operation = 0; operation < OPERATION_NAMES.length; operation++) {
+            for (int uriSlot = 0; uriSlot < mUriNames.length; uriSlot++) {
+                int slot = operation * mUriNames.length + uriSlot;
+                long calls = mCalls.get(slot);
+                if (calls == 0) {
+                    continue;
+                }
+                long[] histogram = getHistogram(slot);
+                writer.printf("  %-8s %-12s %10d %12d %10d %10s %10s %10s%n",
+                        OPERATION_NAMES[operation], mUriNames[uriSlot], calls, mRows.get(slot),
+                        mTotalNanos.get(slot) / 1000 / calls,
+                        getPercentile(histogram, calls, 0.5),
+                        getPercentile(histogram, calls, 0.9),
+                        getPercentile(histogram, calls, 0.99));
+            }
+        }
+    }
+
+    private long[] getHistogram(int slot) {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int bucket = 0; bucket < HISTOGRAM_BUCKETS; bucket++) {
+            histogram[bucket] = mHistograms.get(slot * HISTOGRAM_BUCKETS + bucket);
+        }
+        return histogram;
+    }
+
+    /**
+     * Return the histogram bucket for a latency in microseconds.
+     */
+    private static int getBucket(long micros) {
+        if (micros <= 0) {
+            return 0;
+        }
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * Return the upper bound, in microseconds, of the bucket holding the given percentile.
+     */
+    private static String getPercentile(long[] histogram, long calls, double percentile) {
+        long target = (long) Math.ceil(calls * percentile);
+        long seen = 0;
+        for (int bucket = 0; bucket < HISTOGRAM_BUCKETS - 1; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= target) {
+                return Long.toString(1L << bucket);
+            }
+        }
+        return ">" + (1L << (HISTOGRAM_BUCKETS - 2));
+    }
+}
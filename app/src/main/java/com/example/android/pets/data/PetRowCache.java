@@ -0,0 +1,202 @@
+package com.example.android.pets.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.LruCache;
+
+import com.example.android.pets.data.PetContract.PetEntry;
+
+/**
+ * Bounded, least-recently-used cache of single pet rows, keyed by _id. Used by
+ * {@link PetProvider} to answer single-pet queries without going to the database. Rows are kept
+ * as {@link Pet} objects and served through a {@link CompactCursor}, so nothing is boxed.
+ *
+ * Every write must invalidate the rows it touches. A row read from the database is only
+ * cached if no invalidation happened while it was being read, so a slow reader can never
+ * put back a row that a writer has just changed.
+ */
+class PetRowCache {
+
+    /** Columns of a cached row, in the order they are read */
+    static final String[] COLUMNS = new String[]{
+            PetEntry._ID,
+            PetEntry.COLUMN_PET_NAME,
+            PetEntry.COLUMN_PET_BREED,
+            PetEntry.COLUMN_PET_GENDER,
+            PetEntry.COLUMN_PET_WEIGHT
+    };
+
+    /** Cached rows, or null if caching is turned off */
+    private final LruCache<Long, Pet> mRows;
+
+    /** Incremented on every invalidation. Guarded by this. */
+    private long mGeneration;
+
+    /**
+     * Constructs a new {@link PetRowCache}.
+     *
+     * @param maxSize most rows to keep, or 0 to turn caching off
+     */
+    PetRowCache(int maxSize) {
+        mRows = maxSize > 0 ? new LruCache<Long, Pet>(maxSize) : null;
+    }
+
+    /**
+     * Return whether the cache can answer a query with the given projection. A null projection
+     * means every column.
+     */
+    static boolean canServe(String[] projection) {
+        if (projection == null) {
+            return true;
+        }
+        for (String column : projection) {
+            if (indexOfColumn(column) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return a cursor holding the given pet with the given projection, from the cache if
+     * possible, or else from the database. The projection must pass {@link #canServe}.
+     */
+    Cursor query(SQLiteDatabase database, long id, String[] projection) {
+        return toCursor(getPet(database, id), projection != null ? projection : COLUMNS);
+    }
+
+    /**
+     * Return the given pet, from the cache if possible, or else from the database. Returns null
+     * if there is no such pet.
+     */
+    Pet getPet(SQLiteDatabase database, long id) {
+        Pet pet = null;
+        long generation;
+        synchronized (this) {
+            generation = mGeneration;
+            if (mRows != null) {
+                pet = mRows.get(id);
+            }
+        }
+
+        if (pet == null) {
+            pet = readPet(database, id);
+            if (pet == null) {
+                // No such pet, so there is nothing to cache
+                return null;
+            }
+            synchronized (this) {
+                if (mRows != null && generation == mGeneration) {
+                    mRows.put(id, pet);
+                }
+            }
+        }
+        return pet;
+    }
+
+    /**
+     * Drop the given pet from the cache.
+     */
+    synchronized void invalidate(long id) {
+        mGeneration++;
+        if (mRows != null) {
+            mRows.remove(id);
+        }
+    }
+
+    /**
+     * Drop every pet from the cache.
+     */
+    synchronized void invalidateAll() {
+        mGeneration++;
+        if (mRows != null) {
+            mRows.evictAll();
+        }
+    }
+
+    /**
+     * Return the number of queries answered from the cache.
+     */
+    synchronized int getHitCount() {
+        return mRows != null ? mRows.hitCount() : 0;
+    }
+
+    /**
+     * Return the number of queries that had to go to the database.
+     */
+    synchronized int getMissCount() {
+        return mRows != null ? mRows.missCount() : 0;
+    }
+
+    /**
+     * Return the number of rows currently cached.
+     */
+    synchronized int size() {
+        return mRows != null ? mRows.size() : 0;
+    }
+
+    /**
+     * Read the given pet from the database, or return null if it doesn't exist.
+     */
+    private static Pet readPet(SQLiteDatabase database, long id) {
+        Cursor cursor = database.query(PetEntry.VIEW_NAME, COLUMNS, PetEntry._ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
+        try {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new Pet(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getInt(3), cursor.getInt(4));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Build a cursor with the given projection holding the given pet, or no rows if it is null.
+     */
+    private static Cursor toCursor(Pet pet, String[] projection) {
+        int[] types = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            int column = indexOfColumn(projection[i]);
+            types[i] = column == 1 || column == 2 ? CompactCursor.TYPE_STRING : CompactCursor.TYPE_LONG;
+        }
+        CompactCursor cursor = new CompactCursor(projection, types, 1);
+        if (pet == null) {
+            return cursor;
+        }
+        int row = cursor.addRow();
+        for (int i = 0; i < projection.length; i++) {
+            switch (indexOfColumn(projection[i])) {
+                case 0:
+                    cursor.setLong(row, i, pet.id);
+                    break;
+                case 1:
+                    cursor.setString(row, i, pet.name);
+                    break;
+                case 2:
+                    cursor.setString(row, i, pet.breed);
+                    break;
+                case 3:
+                    cursor.setLong(row, i, pet.gender);
+                    break;
+                default:
+                    cursor.setLong(row, i, pet.weight);
+                    break;
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Return the position of the given column in a cached row, or -1 if it isn't cached.
+     */
+    private static int indexOfColumn(String column) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.android.pets.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CrossProcessCursorWrapper;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * The databases of the shelters other than the app's own, for {@link PetProvider}. Each shelter
+ * keeps its pets in a database file of its own, with the same schema as the app's database, so
+ * a query or a delete for one shelter never touches another's pets.
+ *
+ * A shelter's database is only opened the first time it is used. Shelters are taken with
+ * {@link #acquire(long)} and handed back with {@link #release(Shelter)}, and whenever one is
+ * taken, databases that nobody is using and that have been idle for a while, or that are beyond
+ * the most kept open, are closed. A cursor read from a shelter's database holds the shelter
+ * until the cursor is closed; see {@link #holdUntilClosed(Shelter, Cursor)}.
+ */
+class PetShelters {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = PetShelters.class.getSimpleName();
+
+    /** Prefix and suffix of a shelter's database file name, around the shelter's id */
+    private static final String DATABASE_PREFIX = "shelter_";
+    private static final String DATABASE_SUFFIX = ".db";
+
+    /** Time a database may sit unused before it is closed */
+    private static final long IDLE_MILLIS = 60 * 1000;
+
+    /** Most databases kept open while nobody is using them */
+    private static final int MAX_IDLE_OPEN = 4;
+
+    /**
+     * Page cache size, in pages, for each shelter's database. Smaller than the app's own, since
+     * several may be open at once.
+     */
+    private static final int DATABASE_CACHE_SIZE = 500;
+
+    /**
+     * A shelter's database, and the breed ids seen in it.
+     */
+    static class Shelter {
+
+        final long id;
+
+        final PetBreeds breeds = new PetBreeds();
+
+        private final PetDbHelper mDbHelper;
+
+        /** Number of callers using the shelter. Guarded by the PetShelters. */
+        private int mUsers;
+
+        /** When the shelter was last handed back. Guarded by the PetShelters. */
+        private long mLastUsedMillis;
+
+        private Shelter(Context context, long id) {
+            this.id = id;
+            mDbHelper = new PetDbHelper(context, getDatabaseName(id), true, DATABASE_CACHE_SIZE,
+                    PetDbHelper.SYNCHRONOUS_NORMAL);
+        }
+
+        /**
+         * Return the shelter's database, opening and migrating it if needed.
+         */
+        SQLiteDatabase getDatabase() {
+            return mDbHelper.getWritableDatabase();
+        }
+    }
+
+    private final Context mContext;
+
+    /** Shelters with a helper, least recently used first. Guarded by this. */
+    private final LinkedHashMap<Long, Shelter> mShelters = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructs a new {@link PetShelters}.
+     *
+     * @param context of the app, for the database files
+     */
+    PetShelters(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Take the shelter with the given id, creating its database if it doesn't exist yet. Hand it
+     * back with {@link #release(Shelter)} once done with it.
+     */
+    synchronized Shelter acquire(long id) {
+        Shelter shelter = mShelters.get(id);
+        if (shelter == null) {
+            shelter = new Shelter(mContext, id);
+            mShelters.put(id, shelter);
+        }
+        shelter.mUsers++;
+        closeIdle();
+        return shelter;
+    }
+
+    /**
+     * Take the shelter with the given id if it has a database, or return null without creating
+     * one, so reading a shelter that doesn't exist leaves no file behind. Hand it back with
+     * {@link #release(Shelter)} once done with it.
+     */
+    synchronized Shelter acquireExisting(long id) {
+        if (!mShelters.containsKey(id) && !mContext.getDatabasePath(getDatabaseName(id)).exists()) {
+            return null;
+        }
+        return acquire(id);
+    }
+
+    /**
+     * Return a cursor that reads through to the given one and hands the shelter back when it is
+     * closed, so the shelter's database isn't closed as idle while the cursor still has rows to
+     * read. Takes over the caller's hold on the shelter.
+     */
+    Cursor holdUntilClosed(final Shelter shelter, Cursor cursor) {
+        return new CrossProcessCursorWrapper(cursor) {
+
+            /** Whether the shelter has been handed back. Guarded by this. */
+            private boolean mReleased;
+
+            @Override
+            public void close() {
+                super.close();
+                synchronized (this) {
+                    if (mReleased) {
+                        return;
+                    }
+                    mReleased = true;
+                }
+                release(shelter);
+            }
+        };
+    }
+
+    /**
+     * Hand back a shelter taken with {@link #acquire(long)}.
+     */
+    synchronized void release(Shelter shelter) {
+        shelter.mUsers--;
+        shelter.mLastUsedMillis = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Return the ids of every shelter that has a database, in ascending order. The app's own
+     * shelter isn't one of them.
+     */
+    long[] getShelterIds() {
+        ArrayList<Long> ids = new ArrayList<>();
+        for (String name : mContext.databaseList()) {
+            if (name.startsWith(DATABASE_PREFIX) && name.endsWith(DATABASE_SUFFIX)) {
+                try {
+                    ids.add(Long.parseLong(name.substring(DATABASE_PREFIX.length(),
+                            name.length() - DATABASE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a shelter's database
+                }
+            }
+        }
+        long[] result = new long[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Close the databases nobody is using that have been idle too long, or that are beyond the
+     * most kept open, least recently used first.
+     */
+    private void closeIdle() {
+        long now = SystemClock.elapsedRealtime();
+        int idle = 0;
+        for (Shelter shelter : mShelters.values()) {
+            if (shelter.mUsers == 0) {
+                idle++;
+            }
+        }
+
+        Iterator<Shelter> iterator = mShelters.values().iterator();
+        while (iterator.hasNext()) {
+            Shelter shelter = iterator.next();
+            if (shelter.mUsers == 0 &&
+                    (idle > MAX_IDLE_OPEN || now - shelter.mLastUsedMillis > IDLE_MILLIS)) {
+                Log.v(LOG_TAG, "Closing the idle database of shelter " + shelter.id);
+                shelter.mDbHelper.close();
+                iterator.remove();
+                idle--;
+            }
+        }
+    }
+
+    private static String getDatabaseName(long id) {
+        return DATABASE_PREFIX + id + DATABASE_SUFFIX;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.android.pets.data;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compiled statements for {@link PetProvider}'s most common writes: inserting a full pet row,
+ * updating a pet by _id, and deleting a pet by _id. Each statement is compiled once and then
+ * re-bound for every call, instead of the SQL being built and compiled again each time.
+ *
+ * Breeds are written as a reference to the breeds table, resolved through {@link PetBreeds}.
+ *
+ * A statement is taken out of the cache while it is in use and put back afterwards, so two
+ * threads never bind the same statement, and no lock is held while SQLite runs it. If a thread
+ * finds the statement it needs already taken, it compiles a spare one for that call.
+ */
+class PetStatementCache {
+
+    /** Columns that can be written, in the order of the bits in an update shape */
+    private static final String[] COLUMNS = new String[]{
+            PetEntry.COLUMN_PET_NAME,
+            PetEntry.COLUMN_PET_BREED,
+            PetEntry.COLUMN_PET_GENDER,
+            PetEntry.COLUMN_PET_WEIGHT
+    };
+
+    /** Position of the breed in {@link #COLUMNS} */
+    private static final int COLUMN_BREED = 1;
+
+    /** Table columns the {@link #COLUMNS} are stored in */
+    private static final String[] TABLE_COLUMNS = new String[]{
+            PetEntry.COLUMN_PET_NAME,
+            PetEntry.COLUMN_PET_BREED_ID,
+            PetEntry.COLUMN_PET_GENDER,
+            PetEntry.COLUMN_PET_WEIGHT
+    };
+
+    /** Update shape writing every column */
+    private static final int SHAPE_ALL_COLUMNS = (1 << COLUMNS.length) - 1;
+
+    /** Slots of the insert and delete statements. Update statements follow, one per shape. */
+    private static final int SLOT_INSERT = 0;
+    private static final int SLOT_DELETE = 1;
+    private static final int SLOT_FIRST_UPDATE = 2;
+
+    /**
+     * SQL for inserting one full pet row
+     */
+    private static final String SQL_INSERT = "INSERT INTO " + PetEntry.TABLE_NAME + " (" +
+            PetEntry.COLUMN_PET_NAME + ", " +
+            PetEntry.COLUMN_PET_BREED_ID + ", " +
+            PetEntry.COLUMN_PET_GENDER + ", " +
+            PetEntry.COLUMN_PET_WEIGHT + ") VALUES (?, ?, ?, ?)";
+
+    /**
+     * SQL for deleting one pet by _id
+     */
+    private static final String SQL_DELETE = "DELETE FROM " + PetEntry.TABLE_NAME +
+            " WHERE " + PetEntry._ID + " = ?";
+
+    private final PetBreeds mBreeds;
+
+    /** Idle statements, by slot. A null slot has its statement in use or not compiled yet. */
+    private final AtomicReferenceArray<SQLiteStatement> mStatements =
+            new AtomicReferenceArray<>(SLOT_FIRST_UPDATE + (1 << COLUMNS.length));
+
+    /**
+     * Constructs a new {@link PetStatementCache}.
+     *
+     * @param breeds to resolve breed names to breed ids
+     */
+    PetStatementCache(PetBreeds breeds) {
+        mBreeds = breeds;
+    }
+
+    /**
+     * Return whether the given values can be inserted with the full-row insert statement: that
+     * is, they hold no column other than the pet's name, breed, gender and weight.
+     */
+    static boolean canInsert(ContentValues values) {
+        return getShape(values) != -1;
+    }
+
+    /**
+     * Return whether the given values can be written with an update-by-id statement.
+     */
+    static boolean canUpdate(ContentValues values) {
+        return getShape(values) > 0;
+    }
+
+    /**
+     * Insert one pet. The values must have been validated as a new pet. A missing weight is
+     * written as 0 kg, as in the table definition. Return the new row's _id, or -1 on failure.
+     */
+    long insert(SQLiteDatabase database, ContentValues values) {
+        Integer weight = values.getAsInteger(PetEntry.COLUMN_PET_WEIGHT);
+        return insert(database, values.getAsString(PetEntry.COLUMN_PET_NAME),
+                values.getAsString(PetEntry.COLUMN_PET_BREED),
+                values.getAsInteger(PetEntry.COLUMN_PET_GENDER), weight != null ? weight : 0);
+    }
+
+    /**
+     * Insert one pet from its column values. Return the new row's _id, or -1 on failure.
+     */
+    long insert(SQLiteDatabase database, String name, String breed, int gender, int weight) {
+        Long breedId = mBreeds.resolve(database, breed);
+        SQLiteStatement statement = acquire(database, SLOT_INSERT, SQL_INSERT);
+        try {
+            statement.bindString(1, name);
+            if (breedId != null) {
+                statement.bindLong(2, breedId);
+            } else {
+                statement.bindNull(2);
+            }
+            statement.bindLong(3, gender);
+            statement.bindLong(4, weight);
+            return statement.executeInsert();
+        } finally {
+            release(SLOT_INSERT, statement);
+        }
+    }
+
+    /**
+     * Update the columns in the given values for one pet. Return the number of rows changed.
+     */
+    int update(SQLiteDatabase database, long id, ContentValues values) {
+        int shape = getShape(values);
+        if (shape <= 0) {
+            throw new IllegalArgumentException("Values can't be written by id: " + values);
+        }
+        Long breedId = null;
+        if ((shape & (1 << COLUMN_BREED)) != 0) {
+            breedId = mBreeds.resolve(database, values.getAsString(PetEntry.COLUMN_PET_BREED));
+        }
+        int slot = SLOT_FIRST_UPDATE + shape;
+        SQLiteStatement statement = acquire(database, slot, null);
+        try {
+            int index = 1;
+            for (int column = 0; column < COLUMNS.length; column++) {
+                if ((shape & (1 << column)) != 0) {
+                    Object value = column == COLUMN_BREED ? breedId : values.get(COLUMNS[column]);
+                    DatabaseUtils.bindObjectToProgram(statement, index++, value);
+                }
+            }
+            statement.bindLong(index, id);
+            return statement.executeUpdateDelete();
+        } finally {
+            release(slot, statement);
+        }
+    }
+
+    /**
+     * Overwrite every column of the given saved pet. Return the number of rows changed.
+     */
+    int update(SQLiteDatabase database, Pet pet) {
+        Long breedId = mBreeds.resolve(database, pet.breed);
+        int slot = SLOT_FIRST_UPDATE + SHAPE_ALL_COLUMNS;
+        SQLiteStatement statement = acquire(database, slot, null);
+        try {
+            // Bound in COLUMNS order, as the statement's SET clause lists them
+            statement.bindString(1, pet.name);
+            if (breedId != null) {
+                statement.bindLong(2, breedId);
+            } else {
+                statement.bindNull(2);
+            }
+            statement.bindLong(3, pet.gender);
+            statement.bindLong(4, pet.weight);
+            statement.bindLong(5, pet.id);
+            return statement.executeUpdateDelete();
+        } finally {
+            release(slot, statement);
+        }
+    }
+
+    /**
+     * Delete one pet. Return the number of rows deleted.
+     */
+    int delete(SQLiteDatabase database, long id) {
+        SQLiteStatement statement = acquire(database, SLOT_DELETE, SQL_DELETE);
+        try {
+            statement.bindLong(1, id);
+            return statement.executeUpdateDelete();
+        } finally {
+            release(SLOT_DELETE, statement);
+        }
+    }
+
+    /**
+     * Return a bit set of the columns in the given values, or -1 if they hold any other column.
+     */
+    private static int getShape(ContentValues values) {
+        int shape = 0;
+        int known = 0;
+        for (int column = 0; column < COLUMNS.length; column++) {
+            if (values.containsKey(COLUMNS[column])) {
+                shape |= 1 << column;
+                known++;
+            }
+        }
+        return known == values.size() ? shape : -1;
+    }
+
+    /**
+     * Build the SQL updating the columns in an update shape for one pet.
+     */
+    private static String buildUpdateSql(int shape) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(PetEntry.TABLE_NAME).append(" SET ");
+        boolean first = true;
+        for (int column = 0; column < COLUMNS.length; column++) {
+            if ((shape & (1 << column)) != 0) {
+                if (!first) {
+                    sql.append(", ");
+                }
+                sql.append(TABLE_COLUMNS[column]).append(" = ?");
+                first = false;
+            }
+        }
+        return sql.append(" WHERE ").append(PetEntry._ID).append(" = ?").toString();
+    }
+
+    /**
+     * Close every cached statement, before the database they were compiled for is closed. No
+     * statement may be in use.
+     */
+    void clear() {
+        for (int slot = 0; slot < mStatements.length(); slot++) {
+            SQLiteStatement statement = mStatements.getAndSet(slot, null);
+            if (statement != null) {
+                statement.close();
+            }
+        }
+    }
+
+    /**
+     * Take the statement in a slot out of the cache, or compile a new one if it is in use or
+     * hasn't been compiled yet. A null SQL means the slot's update statement.
+     */
+    private SQLiteStatement acquire(SQLiteDatabase database, int slot, String sql) {
+        SQLiteStatement statement = mStatements.getAndSet(slot, null);
+        if (statement != null) {
+            return statement;
+        }
+        if (sql == null) {
+            sql = buildUpdateSql(slot - SLOT_FIRST_UPDATE);
+        }
+        return database.compileStatement(sql);
+    }
+
+    /**
+     * Put a statement back in its slot, or close it if another thread has already filled it.
+     */
+    private void release(int slot, SQLiteStatement statement) {
+        statement.clearBindings();
+        if (!mStatements.compareAndSet(slot, null, statement)) {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.android.pets.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.pets.data.PetContract.BreedEntry;
+import com.example.android.pets.data.PetContract.PetEntry;
+import com.example.android.pets.data.PetContract.PetStatsEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Memoized shelter statistics for {@link PetProvider}: pet counts and weight min/avg/max, for
+ * the whole shelter, per gender and per breed.
+ *
+ * The statistics are computed with GROUP BY queries the first time they are needed. After that,
+ * new pets are added to them in place, and any other write throws them away to be recomputed on
+ * the next request.
+ *
+ * An insert is bracketed by {@link #onInsertStarted()} and {@link #onInsertFinished()}. A
+ * recomputation that runs while an insert is between the two may already see the new pet, which
+ * {@link #onPetInserted} would then add a second time, so it is returned but not kept.
+ */
+class PetStats {
+
+    /** Orders breeds alphabetically, with pets of no recorded breed first */
+    private static final Comparator<String> BREED_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String lhs, String rhs) {
+            if (lhs == null || rhs == null) {
+                return lhs == null ? (rhs == null ? 0 : -1) : 1;
+            }
+            return lhs.compareTo(rhs);
+        }
+    };
+
+    /** Pets joined to their breed names, for the per-breed query */
+    private static final String PETS_WITH_BREEDS = PetEntry.TABLE_NAME + " p LEFT JOIN " +
+            BreedEntry.TABLE_NAME + " b ON b." + BreedEntry._ID + " = p." +
+            PetEntry.COLUMN_PET_BREED_ID;
+
+    /** Types of the {@link PetStatsEntry#COLUMNS} */
+    private static final int[] COLUMN_TYPES = new int[]{
+            CompactCursor.TYPE_STRING,
+            CompactCursor.TYPE_STRING,
+            CompactCursor.TYPE_LONG,
+            CompactCursor.TYPE_LONG,
+            CompactCursor.TYPE_DOUBLE,
+            CompactCursor.TYPE_LONG
+    };
+
+    /** Statistics per gender, or null if they need to be recomputed. Guarded by this. */
+    private Map<Integer, Aggregate> mGenders;
+
+    /** Statistics per breed, or null if they need to be recomputed. Guarded by this. */
+    private Map<String, Aggregate> mBreeds;
+
+    /** Incremented on every change, so a stale recomputation is never installed. Guarded by this. */
+    private long mGeneration;
+
+    /** Number of inserts between their start and finish. Guarded by this. */
+    private int mInsertsInFlight;
+
+    /**
+     * Return a cursor holding the shelter statistics, as described by {@link PetStatsEntry}.
+     */
+    Cursor query(SQLiteDatabase database) {
+        Map<Integer, Aggregate> genders;
+        Map<String, Aggregate> breeds;
+        long generation;
+        synchronized (this) {
+            if (mGenders != null) {
+                return toCursor(mGenders, mBreeds);
+            }
+            generation = mGeneration;
+        }
+
+        genders = new TreeMap<>();
+        Cursor cursor = database.rawQuery(buildGroupByQuery(PetEntry.COLUMN_PET_GENDER,
+                PetEntry.TABLE_NAME, PetEntry.COLUMN_PET_GENDER), null);
+        try {
+            while (cursor.moveToNext()) {
+                genders.put(cursor.getInt(0), readAggregate(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        breeds = new HashMap<>();
+        // Grouped on the integer breed_id, and only then joined to the breed's name
+        cursor = database.rawQuery(buildGroupByQuery("b." + BreedEntry.COLUMN_BREED_NAME,
+                PETS_WITH_BREEDS, "p." + PetEntry.COLUMN_PET_BREED_ID), null);
+        try {
+            while (cursor.moveToNext()) {
+                breeds.put(cursor.isNull(0) ? null : cursor.getString(0), readAggregate(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        synchronized (this) {
+            if (generation == mGeneration && mInsertsInFlight == 0) {
+                mGenders = genders;
+                mBreeds = breeds;
+            }
+            return toCursor(genders, breeds);
+        }
+    }
+
+    /**
+     * Call before inserting pets, and {@link #onInsertFinished()} once they have been added.
+     */
+    synchronized void onInsertStarted() {
+        mInsertsInFlight++;
+    }
+
+    /**
+     * Call once the pets of an insert have been added with {@link #onPetInserted}, or the insert
+     * has failed.
+     */
+    synchronized void onInsertFinished() {
+        mInsertsInFlight--;
+    }
+
+    /**
+     * Add a new pet to the statistics, if they are currently computed.
+     */
+    synchronized void onPetInserted(String breed, int gender, int weight) {
+        mGeneration++;
+        if (mGenders == null) {
+            return;
+        }
+        getOrCreate(mGenders, gender).add(weight);
+        getOrCreate(mBreeds, breed).add(weight);
+    }
+
+    /**
+     * Throw the statistics away, to be recomputed on the next request.
+     */
+    synchronized void invalidate() {
+        mGeneration++;
+        mGenders = null;
+        mBreeds = null;
+    }
+
+    /**
+     * Build a query for the count and weight statistics of the pets, grouped by a column and
+     * labelled by another.
+     */
+    private static String buildGroupByQuery(String labelColumn, String from, String groupColumn) {
+        return "SELECT " + labelColumn + ", COUNT(*), SUM(" + PetEntry.COLUMN_PET_WEIGHT +
+                "), MIN(" + PetEntry.COLUMN_PET_WEIGHT + "), MAX(" + PetEntry.COLUMN_PET_WEIGHT +
+                ") FROM " + from + " GROUP BY " + groupColumn;
+    }
+
+    /**
+     * Read the aggregate columns of a grouped query row.
+     */
+    private static Aggregate readAggregate(Cursor cursor) {
+        Aggregate aggregate = new Aggregate();
+        aggregate.mCount = cursor.getInt(1);
+        aggregate.mSum = cursor.getLong(2);
+        aggregate.mMin = cursor.getInt(3);
+        aggregate.mMax = cursor.getInt(4);
+        return aggregate;
+    }
+
+    private static <K> Aggregate getOrCreate(Map<K, Aggregate> groups, K key) {
+        Aggregate aggregate = groups.get(key);
+        if (aggregate == null) {
+            aggregate = new Aggregate();
+            groups.put(key, aggregate);
+        }
+        return aggregate;
+    }
+
+    /**
+     * Build the statistics cursor: the shelter total, then one row per gender, then one row per
+     * breed.
+     */
+    private static Cursor toCursor(Map<Integer, Aggregate> genders, Map<String, Aggregate> breeds) {
+        CompactCursor cursor = new CompactCursor(PetStatsEntry.COLUMNS, COLUMN_TYPES,
+                1 + genders.size() + breeds.size());
+
+        Aggregate total = new Aggregate();
+        for (Aggregate gender : genders.values()) {
+            total.addAll(gender);
+        }
+        addRow(cursor, PetStatsEntry.GROUP_TOTAL, null, total);
+
+        for (Map.Entry<Integer, Aggregate> gender : genders.entrySet()) {
+            addRow(cursor, PetStatsEntry.GROUP_GENDER, gender.getKey().toString(), gender.getValue());
+        }
+
+        ArrayList<String> breedNames = new ArrayList<>(breeds.keySet());
+        Collections.sort(breedNames, BREED_ORDER);
+        for (String breed : breedNames) {
+            addRow(cursor, PetStatsEntry.GROUP_BREED, breed, breeds.get(breed));
+        }
+        return cursor;
+    }
+
+    private static void addRow(CompactCursor cursor, String group, String key, Aggregate aggregate) {
+        int row = cursor.addRow();
+        cursor.setString(row, 0, group);
+        cursor.setString(row, 1, key);
+        cursor.setLong(row, 2, aggregate.mCount);
+        // Weights are left null for an empty group
+        if (aggregate.mCount > 0) {
+            cursor.setLong(row, 3, aggregate.mMin);
+            cursor.setDouble(row, 4, (double) aggregate.mSum / aggregate.mCount);
+            cursor.setLong(row, 5, aggregate.mMax);
+        }
+    }
+
+    /**
+     * Count and weight statistics of one group of pets.
+     */
+    private static class Aggregate {
+
+        int mCount;
+
+        long mSum;
+
+        int mMin;
+
+        int mMax;
+
+        void add(int weight) {
+            mMin = mCount == 0 ? weight : Math.min(mMin, weight);
+            mMax = mCount == 0 ? weight : Math.max(mMax, weight);
+            mSum += weight;
+            mCount++;
+        }
+
+        void addAll(Aggregate other) {
+            if (other.mCount == 0) {
+                return;
+            }
+            mMin = mCount == 0 ? other.mMin : Math.min(mMin, other.mMin);
+            mMax = mCount == 0 ? other.mMax : Math.max(mMax, other.mMax);
+            mSum += other.mSum;
+            mCount += other.mCount;
+        }
+    }
+}
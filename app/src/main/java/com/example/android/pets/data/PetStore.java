@@ -0,0 +1,96 @@
+package com.example.android.pets.data;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderClient;
+import android.content.Context;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Typed, in-process access to the shelter's pets, alongside the {@link PetProvider} content
+ * URIs. Pets are read and written as {@link Pet} objects, so callers skip building
+ * ContentValues and looking up cursor columns by name.
+ *
+ * Writes go through the same provider instance as the content URIs, so they share its
+ * validation, caches and change notifications: observers of {@link PetContract.PetEntry#CONTENT_URI}
+ * see them as usual. Methods block on the database, so call them off the main thread.
+ */
+public class PetStore {
+
+    private static PetStore sInstance;
+
+    private final PetProvider mProvider;
+
+    private PetStore(PetProvider provider) {
+        mProvider = provider;
+    }
+
+    /**
+     * Return the app's pet store. Throws an {@link IllegalStateException} if the provider isn't
+     * running in this process.
+     */
+    public static synchronized PetStore getInstance(Context context) {
+        if (sInstance == null) {
+            // The client is kept for the life of the process, which keeps the provider too
+            ContentProviderClient client = context.getApplicationContext().getContentResolver()
+                    .acquireContentProviderClient(PetContract.CONTENT_AUTHORITY);
+            ContentProvider provider = client != null ? client.getLocalContentProvider() : null;
+            if (!(provider instanceof PetProvider)) {
+                if (client != null) {
+                    client.release();
+                }
+                throw new IllegalStateException("PetProvider isn't running in this process");
+            }
+            sInstance = new PetStore((PetProvider) provider);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return the pet with the given id, or null if there is no such pet.
+     */
+    public Pet get(long id) {
+        return mProvider.getPet(id);
+    }
+
+    /**
+     * Return up to limit pets with an id greater than afterId, in id order. Pass 0 for the
+     * first page, and the last pet's id for each page after it.
+     */
+    public List<Pet> getPage(long afterId, int limit) {
+        return mProvider.getPets(afterId, limit);
+    }
+
+    /**
+     * Insert a new pet. Its id is ignored. Return the new pet's id, or -1 if the insert failed.
+     */
+    public long insert(Pet pet) {
+        return mProvider.insertPets(Collections.singletonList(pet))[0];
+    }
+
+    /**
+     * Insert new pets inside a single transaction. Their ids are ignored. Return the new ids,
+     * in order, with -1 for any pet that failed to insert.
+     */
+    public long[] insertAll(List<Pet> pets) {
+        return mProvider.insertPets(pets);
+    }
+
+    /**
+     * Overwrite the saved pet with the same id. Return whether it was found.
+     */
+    public boolean update(Pet pet) {
+        if (pet.id == Pet.NO_ID) {
+            throw new IllegalArgumentException("Pet hasn't been saved: " + pet);
+        }
+        return mProvider.updatePet(pet) != 0;
+    }
+
+    /**
+     * Delete the pet with the given id. Return whether it was found.
+     */
+    public boolean delete(long id) {
+        return mProvider.deletePet(id) != 0;
+    }
+}
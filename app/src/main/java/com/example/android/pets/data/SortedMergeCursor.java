@@ -0,0 +1,183 @@
+package com.example.android.pets.data;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+
+/**
+ * A cursor over the rows of several cursors with the same columns, for {@link PetProvider}'s
+ * queries across shelters. If each cursor is sorted by a column, the rows are merged in that
+ * column's order, comparing values the way SQLite does: nulls first, then numbers, then text.
+ * Rows with equal values, or every row when there is no sort column, keep the order of their
+ * cursors.
+ *
+ * The merged order is worked out once, up front, as a cursor and position for each row. Values
+ * are then read straight from the underlying cursors, which are closed along with this one.
+ */
+class SortedMergeCursor extends AbstractCursor {
+
+    private final Cursor[] mCursors;
+
+    /** Index in {@link #mCursors} and position in that cursor, by merged row */
+    private final int[] mRowCursors;
+    private final int[] mRowPositions;
+
+    /** The cursor holding the current row */
+    private Cursor mCursor;
+
+    /**
+     * Constructs a new {@link SortedMergeCursor}.
+     *
+     * @param cursors    to merge, at least one, all with the same columns
+     * @param sortColumn index of the column every cursor is sorted by, or -1 to keep them in turn
+     * @param limit      most rows to return, or -1 for every row
+     */
+    SortedMergeCursor(Cursor[] cursors, int sortColumn, int limit) {
+        mCursors = cursors;
+        int[] counts = new int[cursors.length];
+        int total = 0;
+        for (int i = 0; i < cursors.length; i++) {
+            counts[i] = cursors[i].getCount();
+            total += counts[i];
+        }
+        if (limit >= 0) {
+            total = Math.min(total, limit);
+        }
+
+        mRowCursors = new int[total];
+        mRowPositions = new int[total];
+        int[] next = new int[cursors.length];
+        for (int row = 0; row < total; row++) {
+            // Take the smallest next row of the cursors, the earliest cursor's on a tie
+            int chosen = -1;
+            for (int i = 0; i < cursors.length; i++) {
+                if (next[i] == counts[i]) {
+                    continue;
+                }
+                if (chosen == -1) {
+                    chosen = i;
+                    if (sortColumn == -1) {
+                        break;
+                    }
+                    continue;
+                }
+                cursors[chosen].moveToPosition(next[chosen]);
+                cursors[i].moveToPosition(next[i]);
+                if (compare(cursors[i], cursors[chosen], sortColumn) < 0) {
+                    chosen = i;
+                }
+            }
+            mRowCursors[row] = chosen;
+            mRowPositions[row] = next[chosen]++;
+        }
+    }
+
+    /**
+     * Compare the values in a column of the current rows of two cursors, in SQLite's order.
+     */
+    private static int compare(Cursor lhs, Cursor rhs, int column) {
+        int lhsRank = getTypeRank(lhs.getType(column));
+        int rhsRank = getTypeRank(rhs.getType(column));
+        if (lhsRank != rhsRank) {
+            return lhsRank < rhsRank ? -1 : 1;
+        }
+        switch (lhsRank) {
+            case FIELD_TYPE_NULL:
+                return 0;
+            case FIELD_TYPE_INTEGER:
+                if (lhs.getType(column) == FIELD_TYPE_INTEGER
+                        && rhs.getType(column) == FIELD_TYPE_INTEGER) {
+                    long lhsValue = lhs.getLong(column);
+                    long rhsValue = rhs.getLong(column);
+                    return lhsValue < rhsValue ? -1 : (lhsValue == rhsValue ? 0 : 1);
+                }
+                return Double.compare(lhs.getDouble(column), rhs.getDouble(column));
+            default:
+                return lhs.getString(column).compareTo(rhs.getString(column));
+        }
+    }
+
+    /**
+     * Return the rank of a value's type in SQLite's sort order: nulls, then numbers of either
+     * type, then text and anything else.
+     */
+    private static int getTypeRank(int type) {
+        switch (type) {
+            case FIELD_TYPE_NULL:
+                return FIELD_TYPE_NULL;
+            case FIELD_TYPE_INTEGER:
+            case FIELD_TYPE_FLOAT:
+                return FIELD_TYPE_INTEGER;
+            default:
+                return FIELD_TYPE_STRING;
+        }
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        mCursor = mCursors[mRowCursors[newPosition]];
+        return mCursor.moveToPosition(mRowPositions[newPosition]);
+    }
+
+    @Override
+    public int getCount() {
+        return mRowCursors.length;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mCursors[0].getColumnNames();
+    }
+
+    @Override
+    public int getType(int column) {
+        return mCursor.getType(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return mCursor.isNull(column);
+    }
+
+    @Override
+    public String getString(int column) {
+        return mCursor.getString(column);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return mCursor.getShort(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return mCursor.getInt(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        return mCursor.getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return mCursor.getFloat(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return mCursor.getDouble(column);
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        return mCursor.getBlob(column);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        for (Cursor cursor : mCursors) {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.android.pets.benchmark;
+
+import android.content.ContentValues;
+
+import com.example.android.pets.data.PetContract.PetEntry;
+
+/**
+ * The pets every benchmark fills its tables with. Pet i always has the same name, breed, gender
+ * and weight, so results stay comparable from benchmark to benchmark and run to run.
+ */
+public final class BenchmarkPets {
+
+    private static final String[] BREEDS = {"Labrador", "Terrier", "Beagle", "Tabby", "Siamese"};
+
+    private BenchmarkPets() {
+    }
+
+    public static String getName(int index) {
+        return "Pet " + index;
+    }
+
+    public static String getBreed(int index) {
+        return BREEDS[index % BREEDS.length];
+    }
+
+    public static int getGender(int index) {
+        return index % 3;
+    }
+
+    public static int getWeight(int index) {
+        return index % 60;
+    }
+
+    /**
+     * Return the values of pet i, as inserted through the provider.
+     */
+    public static ContentValues newPet(int index) {
+        ContentValues values = new ContentValues();
+        values.put(PetEntry.COLUMN_PET_NAME, getName(index));
+        values.put(PetEntry.COLUMN_PET_BREED, getBreed(index));
+        values.put(PetEntry.COLUMN_PET_GENDER, getGender(index));
+        values.put(PetEntry.COLUMN_PET_WEIGHT, getWeight(index));
+        return values;
+    }
+
+    /**
+     * Return the values of the given number of pets, starting at pet first.
+     */
+    public static ContentValues[] newPets(int first, int count) {
+        ContentValues[] pets = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            pets[i] = newPet(first + i);
+        }
+        return pets;
+    }
+}
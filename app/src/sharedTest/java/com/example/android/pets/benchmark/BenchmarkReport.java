@@ -0,0 +1,151 @@
+package com.example.android.pets.benchmark;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the results of one benchmark run and writes them as a JSON file, so results can be
+ * compared from run to run to catch regressions. The file looks like
+ *
+ * <pre>
+ * {"suite": "pet_provider_crud", "results": [
+ *   {"name": "insert", "rows": 1000, "operations": 1000, "mean_ns": 81234, "p50_ns": 70211,
+ *    "p90_ns": 120044, "p99_ns": 301877, "max_ns": 912003, "ops_per_second": 12310.3}
+ * ]}
+ * </pre>
+ *
+ * Each result holds its own parameters and measurements, in the order they were added.
+ */
+public class BenchmarkReport {
+
+    /**
+     * One measurement, and the parameters it was taken with.
+     */
+    public static class Result {
+
+        private final LinkedHashMap<String, Object> mValues = new LinkedHashMap<>();
+
+        private Result(String name) {
+            mValues.put("name", name);
+        }
+
+        /**
+         * Add a whole number parameter or measurement.
+         */
+        public Result put(String key, long value) {
+            mValues.put(key, value);
+            return this;
+        }
+
+        /**
+         * Add a fractional measurement.
+         */
+        public Result put(String key, double value) {
+            mValues.put(key, value);
+            return this;
+        }
+
+        /**
+         * Add a text parameter.
+         */
+        public Result put(String key, String value) {
+            mValues.put(key, value);
+            return this;
+        }
+
+        /**
+         * Add the count, mean, percentiles and throughput of the recorded runs.
+         */
+        public Result put(LatencyRecorder latencies) {
+            return put("operations", latencies.getCount())
+                    .put("mean_ns", latencies.getMeanNanos())
+                    .put("p50_ns", latencies.getPercentileNanos(50))
+                    .put("p90_ns", latencies.getPercentileNanos(90))
+                    .put("p99_ns", latencies.getPercentileNanos(99))
+                    .put("max_ns", latencies.getPercentileNanos(100))
+                    .put("ops_per_second", latencies.getOperationsPerSecond());
+        }
+
+        private void write(StringBuilder json) {
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : mValues.entrySet()) {
+                if (!first) {
+                    json.append(", ");
+                }
+                first = false;
+                json.append(JSONObject.quote(entry.getKey())).append(": ");
+                Object value = entry.getValue();
+                if (value instanceof String) {
+                    json.append(JSONObject.quote((String) value));
+                } else {
+                    json.append(value);
+                }
+            }
+            json.append('}');
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder json = new StringBuilder();
+            write(json);
+            return json.toString();
+        }
+    }
+
+    private final String mSuite;
+
+    private final ArrayList<Result> mResults = new ArrayList<>();
+
+    /**
+     * Constructs a new {@link BenchmarkReport}.
+     *
+     * @param suite name of the benchmark, which also names the file
+     */
+    public BenchmarkReport(String suite) {
+        mSuite = suite;
+    }
+
+    /**
+     * Add a result with the given name, and return it for its parameters and measurements.
+     */
+    public Result add(String name) {
+        Result result = new Result(name);
+        mResults.add(result);
+        return result;
+    }
+
+    /**
+     * Write the results to a file named after the suite in the given directory, replacing any
+     * earlier one, and return the file.
+     */
+    public File write(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+        StringBuilder json = new StringBuilder("{\"suite\": ").append(JSONObject.quote(mSuite))
+                .append(", \"results\": [");
+        for (int i = 0; i < mResults.size(); i++) {
+            json.append(i == 0 ? "\n  " : ",\n  ");
+            mResults.get(i).write(json);
+        }
+        json.append("\n]}\n");
+
+        File file = new File(directory, mSuite + ".json");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(json.toString());
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
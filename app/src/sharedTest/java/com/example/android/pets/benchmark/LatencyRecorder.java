@@ -0,0 +1,68 @@
+package com.example.android.pets.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Records how long each run of one operation took, for the benchmarks' percentiles.
+ */
+public class LatencyRecorder {
+
+    private long[] mSamples = new long[1024];
+
+    private int mCount;
+
+    private long mTotalNanos;
+
+    /**
+     * Record one run of the operation that took the given time.
+     */
+    public void record(long nanos) {
+        if (mCount == mSamples.length) {
+            mSamples = Arrays.copyOf(mSamples, mCount * 2);
+        }
+        mSamples[mCount++] = nanos;
+        mTotalNanos += nanos;
+    }
+
+    /**
+     * Return the number of runs recorded.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Return the total time of every run recorded.
+     */
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    /**
+     * Return the mean time of a run, or 0 if none were recorded.
+     */
+    public long getMeanNanos() {
+        return mCount == 0 ? 0 : mTotalNanos / mCount;
+    }
+
+    /**
+     * Return the time within which the given percentage of runs finished, by the nearest rank,
+     * or 0 if none were recorded.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * mCount);
+        return sorted[Math.max(0, Math.min(mCount, rank) - 1)];
+    }
+
+    /**
+     * Return the runs per second, over the total time of every run.
+     */
+    public double getOperationsPerSecond() {
+        return mTotalNanos == 0 ? 0 : mCount * 1e9 / mTotalNanos;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.android.pets.benchmark;
+
+import java.io.File;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Settings for the JVM benchmarks, passed in by Gradle as system properties. Benchmarks take
+ * minutes, so they are skipped unless the build is run with -Pbenchmarks.
+ */
+public final class Benchmarks {
+
+    /** Largest table size to run, so a quick run can stop short of a million rows */
+    private static final int DEFAULT_MAX_ROWS = 1000000;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Skip the calling benchmark unless benchmarks were asked for.
+     */
+    public static void assumeEnabled() {
+        assumeTrue("Benchmarks run with -Pbenchmarks", Boolean.getBoolean("pets.benchmarks"));
+    }
+
+    /**
+     * Return the largest number of rows a benchmark should fill a table with.
+     */
+    public static int getMaxRows() {
+        return Integer.getInteger("pets.benchmarks.maxRows", DEFAULT_MAX_ROWS);
+    }
+
+    /**
+     * Return the directory to write reports to.
+     */
+    public static File getOutputDirectory() {
+        return new File(System.getProperty("pets.benchmarks.outputDir", "build/benchmarks"));
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.android.pets.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.pets.data.PetContract.BreedEntry;
+import com.example.android.pets.data.PetContract.ChangeEntry;
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Upgrades version 1 shelter databases, as written by the first release of the app, through
+ * {@link PetDbHelper}'s migration chain, and checks that every pet survives with its _id and
+ * that the upgraded schema is the one a new install gets.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PetDbHelperMigrationTest {
+
+    /** The pets table exactly as version 1 of the app created it */
+    private static final String SQL_CREATE_VERSION_1 = "CREATE TABLE pets (" +
+            "_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "name TEXT NOT NULL, " +
+            "breed TEXT, " +
+            "gender INTEGER NOT NULL DEFAULT 0, " +
+            "weight INTEGER NOT NULL DEFAULT 0);";
+
+    /** Name of the version 1 fixture, the same file name the app uses */
+    private static final String FIXTURE_NAME = PetDbHelper.DATABASE_NAME;
+
+    private Context mContext;
+
+    private PetDbHelper mDbHelper;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        if (mDbHelper != null) {
+            mDbHelper.close();
+        }
+    }
+
+    @Test
+    public void upgradesVersion1DatabaseInPlace() {
+        createVersion1Fixture();
+
+        SQLiteDatabase db = openUpgraded();
+
+        assertEquals(PetDbHelper.DATABASE_VERSION, db.getVersion());
+        Cursor cursor = db.query(PetEntry.VIEW_NAME, new String[]{PetEntry._ID,
+                        PetEntry.COLUMN_PET_NAME, PetEntry.COLUMN_PET_BREED,
+                        PetEntry.COLUMN_PET_GENDER, PetEntry.COLUMN_PET_WEIGHT}, null, null, null,
+                null, PetEntry._ID);
+        try {
+            assertEquals(4, cursor.getCount());
+            assertPet(cursor, 1, "Toto", "Terrier", PetEntry.GENDER_MALE, 7);
+            assertPet(cursor, 2, "Binx", null, PetEntry.GENDER_UNKNOWN, 4);
+            assertPet(cursor, 3, "Lady", "Labrador", PetEntry.GENDER_FEMALE, 28);
+            assertPet(cursor, 4, "Rex", "Labrador", PetEntry.GENDER_MALE, 31);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void upgradesEmptyVersion1Database() {
+        SQLiteDatabase fixture = openFixture();
+        fixture.close();
+
+        SQLiteDatabase db = openUpgraded();
+
+        assertEquals(PetDbHelper.DATABASE_VERSION, db.getVersion());
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, PetEntry.TABLE_NAME));
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, BreedEntry.TABLE_NAME));
+    }
+
+    @Test
+    public void keepsIdsOfDeletedPetsFromBeingReused() {
+        createVersion1Fixture();
+
+        SQLiteDatabase db = openUpgraded();
+        ContentValues values = new ContentValues();
+        values.put(PetEntry.COLUMN_PET_NAME, "Newcomer");
+        long id = db.insert(PetEntry.TABLE_NAME, null, values);
+
+        // Pet 5 was deleted before the upgrade
+        assertEquals(6, id);
+    }
+
+    @Test
+    public void keepsIdsFromBeingReusedWhenEveryPetWasDeleted() {
+        createVersion1Fixture();
+        SQLiteDatabase fixture = SQLiteDatabase.openDatabase(
+                mContext.getDatabasePath(FIXTURE_NAME).getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE);
+        try {
+            fixture.execSQL("DELETE FROM pets");
+        } finally {
+            fixture.close();
+        }
+
+        SQLiteDatabase db = openUpgraded();
+        ContentValues values = new ContentValues();
+        values.put(PetEntry.COLUMN_PET_NAME, "Newcomer");
+        long id = db.insert(PetEntry.TABLE_NAME, null, values);
+
+        // Pets 1 to 5 were all deleted before the upgrade
+        assertEquals(6, id);
+    }
+
+    @Test
+    public void addsSecondaryIndexes() {
+        createVersion1Fixture();
+
+        SQLiteDatabase db = openUpgraded();
+
+        List<String> indexes = getSchemaNames(db, "index");
+        assertTrue(indexes.contains(PetDbHelper.INDEX_PETS_NAME));
+        assertTrue(indexes.contains(PetDbHelper.INDEX_PETS_BREED));
+        assertTrue(indexes.contains(PetDbHelper.INDEX_PETS_GENDER_WEIGHT));
+        assertTrue(indexes.contains(PetDbHelper.INDEX_PETS_WEIGHT));
+        assertTrue(getQueryPlan(db, "SELECT _id FROM pets WHERE name = 'Toto'")
+                .contains(PetDbHelper.INDEX_PETS_NAME));
+        assertTrue(getQueryPlan(db, "SELECT _id FROM pets WHERE gender = 1 AND weight > 10")
+                .contains(PetDbHelper.INDEX_PETS_GENDER_WEIGHT));
+    }
+
+    @Test
+    public void storesEachBreedOnce() {
+        createVersion1Fixture();
+
+        SQLiteDatabase db = openUpgraded();
+
+        assertEquals(2, DatabaseUtils.queryNumEntries(db, BreedEntry.TABLE_NAME));
+        assertEquals(2, DatabaseUtils.longForQuery(db, "SELECT COUNT(DISTINCT " +
+                PetEntry.COLUMN_PET_BREED_ID + ") FROM " + PetEntry.TABLE_NAME + " WHERE " +
+                PetEntry.COLUMN_PET_BREED_ID + " IS NOT NULL", null));
+    }
+
+    @Test
+    public void indexesExistingPetsForSearch() {
+        createVersion1Fixture();
+
+        SQLiteDatabase db = openUpgraded();
+
+        assertEquals("3,4", DatabaseUtils.stringForQuery(db, "SELECT group_concat(docid) FROM " +
+                "(SELECT docid FROM " + PetEntry.SEARCH_TABLE_NAME + " WHERE " +
+                PetEntry.SEARCH_TABLE_NAME + " MATCH 'lab*' ORDER BY docid)", null));
+        assertEquals("1", DatabaseUtils.stringForQuery(db, "SELECT group_concat(docid) FROM " +
+                PetEntry.SEARCH_TABLE_NAME + " WHERE " + PetEntry.SEARCH_TABLE_NAME +
+                " MATCH 'toto'", null));
+    }
+
+    @Test
+    public void logsChangesOnlyAfterTheUpgrade() {
+        createVersion1Fixture();
+
+        SQLiteDatabase db = openUpgraded();
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, ChangeEntry.TABLE_NAME));
+
+        ContentValues values = new ContentValues();
+        values.put(PetEntry.COLUMN_PET_WEIGHT, 8);
+        db.update(PetEntry.TABLE_NAME, values, PetEntry._ID + " = 1", null);
+        db.delete(PetEntry.TABLE_NAME, PetEntry._ID + " = 2", null);
+
+        Cursor cursor = db.query(ChangeEntry.TABLE_NAME, new String[]{ChangeEntry.COLUMN_PET_ID,
+                ChangeEntry.COLUMN_OPERATION}, null, null, null, null, ChangeEntry.COLUMN_SEQUENCE);
+        try {
+            assertEquals(2, cursor.getCount());
+            cursor.moveToNext();
+            assertEquals(1, cursor.getLong(0));
+            assertEquals(PetEntry.OPERATION_UPDATE, cursor.getString(1));
+            cursor.moveToNext();
+            assertEquals(2, cursor.getLong(0));
+            assertEquals(PetEntry.OPERATION_DELETE, cursor.getString(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void upgradedSchemaMatchesNewInstall() {
+        createVersion1Fixture();
+        List<String> upgradedSchema = getSchema(openUpgraded());
+        mDbHelper.close();
+        mContext.deleteDatabase(FIXTURE_NAME);
+
+        assertEquals(getSchema(openUpgraded()), upgradedSchema);
+    }
+
+    /**
+     * Write a version 1 database holding a few pets, with a deleted pet after the last one.
+     */
+    private void createVersion1Fixture() {
+        SQLiteDatabase fixture = openFixture();
+        try {
+            fixture.execSQL("INSERT INTO pets (name, breed, gender, weight) VALUES " +
+                    "('Toto', 'Terrier', 1, 7)");
+            fixture.execSQL("INSERT INTO pets (name, breed, gender, weight) VALUES " +
+                    "('Binx', NULL, 0, 4)");
+            fixture.execSQL("INSERT INTO pets (name, breed, gender, weight) VALUES " +
+                    "('Lady', 'Labrador', 2, 28)");
+            fixture.execSQL("INSERT INTO pets (name, breed, gender, weight) VALUES " +
+                    "('Rex', 'Labrador', 1, 31)");
+            fixture.execSQL("INSERT INTO pets (name, breed, gender, weight) VALUES " +
+                    "('Gone', 'Beagle', 1, 12)");
+            fixture.execSQL("DELETE FROM pets WHERE name = 'Gone'");
+        } finally {
+            fixture.close();
+        }
+    }
+
+    /**
+     * Create the version 1 fixture file, with the version 1 schema and no pets.
+     */
+    private SQLiteDatabase openFixture() {
+        File file = mContext.getDatabasePath(FIXTURE_NAME);
+        file.getParentFile().mkdirs();
+        SQLiteDatabase fixture = SQLiteDatabase.openOrCreateDatabase(file, null);
+        fixture.execSQL(SQL_CREATE_VERSION_1);
+        fixture.setVersion(1);
+        return fixture;
+    }
+
+    /**
+     * Open the fixture through the app's helper, which upgrades it to the current version.
+     */
+    private SQLiteDatabase openUpgraded() {
+        mDbHelper = new PetDbHelper(mContext);
+        return mDbHelper.getWritableDatabase();
+    }
+
+    private static void assertPet(Cursor cursor, long id, String name, String breed, int gender,
+                                  int weight) {
+        assertTrue(cursor.moveToNext());
+        assertEquals(id, cursor.getLong(0));
+        assertEquals(name, cursor.getString(1));
+        assertEquals(breed, cursor.getString(2));
+        assertEquals(gender, cursor.getInt(3));
+        assertEquals(weight, cursor.getInt(4));
+    }
+
+    /**
+     * Return every table, index, trigger and view, with the SQL that creates it, in name order.
+     */
+    private static List<String> getSchema(SQLiteDatabase db) {
+        ArrayList<String> schema = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master " +
+                "WHERE name NOT IN ('android_metadata', 'sqlite_sequence') ORDER BY name", null);
+        try {
+            while (cursor.moveToNext()) {
+                schema.add(cursor.getString(0) + " " + cursor.getString(1) + ": " +
+                        cursor.getString(2));
+            }
+        } finally {
+            cursor.close();
+        }
+        return schema;
+    }
+
+    private static List<String> getSchemaNames(SQLiteDatabase db, String type) {
+        ArrayList<String> names = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = ?",
+                new String[]{type});
+        try {
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return names;
+    }
+
+    private static String getQueryPlan(SQLiteDatabase db, String sql) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+        try {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.android.pets.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+
+import com.example.android.pets.benchmark.BenchmarkPets;
+import com.example.android.pets.benchmark.BenchmarkReport;
+import com.example.android.pets.benchmark.Benchmarks;
+import com.example.android.pets.benchmark.LatencyRecorder;
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Compares loading a batch of pets with one {@link ContentResolver#bulkInsert} against looping
+ * {@link ContentResolver#insert}, which costs a transaction, a validation pass and a change
+ * notification per pet. Writes build/benchmarks/pet_provider_bulk_insert.json.
+ *
+ * Run with ./gradlew testDebugUnitTest --tests '*Benchmark' -Pbenchmarks.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PetProviderBulkInsertBenchmark {
+
+    /** Batch sizes compared, up to a large shelter intake */
+    private static final int[] BATCH_SIZES = {100, 1000, 10000, 50000};
+
+    /** Timed runs of each batch size and approach, after one untimed warm-up run */
+    private static final int RUNS = 3;
+
+    private ContentResolver mResolver;
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+
+        Robolectric.buildContentProvider(PetProvider.class).create(PetContract.CONTENT_AUTHORITY);
+        mResolver = RuntimeEnvironment.application.getContentResolver();
+    }
+
+    @Test
+    public void compareBulkInsertWithInsertLoop() throws IOException {
+        BenchmarkReport report = new BenchmarkReport("pet_provider_bulk_insert");
+        for (int rows : BATCH_SIZES) {
+            if (rows > Benchmarks.getMaxRows()) {
+                break;
+            }
+            ContentValues[] batch = BenchmarkPets.newPets(0, rows);
+
+            LatencyRecorder bulk = new LatencyRecorder();
+            LatencyRecorder loop = new LatencyRecorder();
+            for (int run = 0; run <= RUNS; run++) {
+                long bulkNanos = timeBulkInsert(batch);
+                long loopNanos = timeInsertLoop(batch);
+                if (run > 0) {
+                    bulk.record(bulkNanos);
+                    loop.record(loopNanos);
+                }
+            }
+
+            report.add("bulk_insert").put("rows", rows).put(bulk)
+                    .put("rows_per_second", bulk.getOperationsPerSecond() * rows);
+            report.add("insert_loop").put("rows", rows).put(loop)
+                    .put("rows_per_second", loop.getOperationsPerSecond() * rows);
+            report.add("speedup").put("rows", rows)
+                    .put("ratio", (double) loop.getPercentileNanos(50)
+                            / bulk.getPercentileNanos(50));
+        }
+
+        report.write(Benchmarks.getOutputDirectory());
+    }
+
+    /**
+     * Insert the batch into an empty table with one bulk insert, and return how long it took.
+     */
+    private long timeBulkInsert(ContentValues[] batch) {
+        clearPets();
+        long startNanos = System.nanoTime();
+        int inserted = mResolver.bulkInsert(PetEntry.CONTENT_URI, batch);
+        long nanos = System.nanoTime() - startNanos;
+        assertEquals(batch.length, inserted);
+        return nanos;
+    }
+
+    /**
+     * Insert the batch into an empty table one pet at a time, and return how long it took.
+     */
+    private long timeInsertLoop(ContentValues[] batch) {
+        clearPets();
+        long startNanos = System.nanoTime();
+        for (ContentValues values : batch) {
+            assertNotNull(mResolver.insert(PetEntry.CONTENT_URI, values));
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    private void clearPets() {
+        mResolver.delete(PetEntry.CONTENT_URI, null, null);
+    }
+}
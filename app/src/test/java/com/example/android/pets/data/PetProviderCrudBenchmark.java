@@ -0,0 +1,195 @@
+package com.example.android.pets.data;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.android.pets.benchmark.BenchmarkPets;
+import com.example.android.pets.benchmark.BenchmarkReport;
+import com.example.android.pets.benchmark.Benchmarks;
+import com.example.android.pets.benchmark.LatencyRecorder;
+import com.example.android.pets.data.PetContract.PetEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.ParameterizedRobolectricTestRunner.Parameters;
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the latency and throughput of inserts, whole-table queries, queries by id, updates and
+ * deletes through {@link PetProvider}, on tables of 1k to 1M pets, using the SQLite that
+ * Robolectric runs on the JVM. Each table size writes build/benchmarks/pet_provider_crud_ROWS.json.
+ *
+ * Run with ./gradlew testDebugUnitTest --tests '*Benchmark' -Pbenchmarks, adding
+ * -PbenchmarkMaxRows=N to skip the tables larger than N. The JVM's numbers are for comparing runs
+ * against each other, not for predicting a phone's.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class PetProviderCrudBenchmark {
+
+    /** Operations timed for each of insert, query by id, update and delete */
+    private static final int OPERATIONS = 1000;
+
+    /** Rows written by each bulk insert while filling the table */
+    private static final int FILL_CHUNK_SIZE = 5000;
+
+    @Parameters(name = "{0} rows")
+    public static Collection<Object[]> getTableSizes() {
+        return Arrays.asList(new Object[][]{{1000}, {10000}, {100000}, {1000000}});
+    }
+
+    private final int mRows;
+
+    private final Random mRandom = new Random(42);
+
+    private ContentResolver mResolver;
+
+    public PetProviderCrudBenchmark(int rows) {
+        mRows = rows;
+    }
+
+    @Before
+    public void setUp() {
+        Benchmarks.assumeEnabled();
+        assumeTrue(mRows <= Benchmarks.getMaxRows());
+
+        Robolectric.buildContentProvider(PetProvider.class).create(PetContract.CONTENT_AUTHORITY);
+        mResolver = RuntimeEnvironment.application.getContentResolver();
+    }
+
+    @Test
+    public void measureCrud() throws IOException {
+        BenchmarkReport report = new BenchmarkReport("pet_provider_crud_" + mRows);
+
+        long fillNanos = fill();
+        report.add("fill").put("rows", mRows).put("total_ns", fillNanos)
+                .put("rows_per_second", mRows * 1e9 / fillNanos);
+
+        report.add("query_by_id").put("rows", mRows).put(measureQueryById());
+        LatencyRecorder queryAll = measureQueryAll();
+        report.add("query_all").put("rows", mRows).put(queryAll)
+                .put("rows_per_second", queryAll.getOperationsPerSecond() * mRows);
+        report.add("update").put("rows", mRows).put(measureUpdate());
+        report.add("insert").put("rows", mRows).put(measureInsert());
+        report.add("delete").put("rows", mRows).put(measureDelete());
+
+        report.write(Benchmarks.getOutputDirectory());
+    }
+
+    /**
+     * Fill the empty table with pets 1 to mRows, by bulk insert, and return how long it took.
+     */
+    private long fill() {
+        long startNanos = System.nanoTime();
+        for (int first = 0; first < mRows; first += FILL_CHUNK_SIZE) {
+            ContentValues[] chunk = BenchmarkPets.newPets(first,
+                    Math.min(FILL_CHUNK_SIZE, mRows - first));
+            assertEquals(chunk.length, mResolver.bulkInsert(PetEntry.CONTENT_URI, chunk));
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    private LatencyRecorder measureQueryById() {
+        LatencyRecorder latencies = new LatencyRecorder();
+        for (int i = 0; i < OPERATIONS; i++) {
+            Uri uri = ContentUris.withAppendedId(PetEntry.CONTENT_URI, randomId());
+            long startNanos = System.nanoTime();
+            Cursor cursor = mResolver.query(uri, PetEntry.PROJECTION_DETAIL, null, null, null);
+            try {
+                cursor.moveToFirst();
+                cursor.getString(1);
+            } finally {
+                cursor.close();
+            }
+            latencies.record(System.nanoTime() - startNanos);
+        }
+        return latencies;
+    }
+
+    /**
+     * Time reading every row of the list, as the catalog would. Small tables get more runs, so
+     * each table size reads a similar number of rows in total.
+     */
+    private LatencyRecorder measureQueryAll() {
+        int runs = Math.max(3, Math.min(100, 100000 / mRows));
+        LatencyRecorder latencies = new LatencyRecorder();
+        for (int i = 0; i < runs; i++) {
+            long startNanos = System.nanoTime();
+            Cursor cursor = mResolver.query(PetEntry.CONTENT_URI, PetEntry.PROJECTION_LIST, null,
+                    null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    cursor.getString(1);
+                }
+            } finally {
+                cursor.close();
+            }
+            latencies.record(System.nanoTime() - startNanos);
+        }
+        return latencies;
+    }
+
+    private LatencyRecorder measureUpdate() {
+        LatencyRecorder latencies = new LatencyRecorder();
+        ContentValues values = new ContentValues();
+        for (int i = 0; i < OPERATIONS; i++) {
+            Uri uri = ContentUris.withAppendedId(PetEntry.CONTENT_URI, randomId());
+            values.put(PetEntry.COLUMN_PET_WEIGHT, mRandom.nextInt(60));
+            long startNanos = System.nanoTime();
+            mResolver.update(uri, values, null, null);
+            latencies.record(System.nanoTime() - startNanos);
+        }
+        return latencies;
+    }
+
+    private LatencyRecorder measureInsert() {
+        LatencyRecorder latencies = new LatencyRecorder();
+        for (int i = 0; i < OPERATIONS; i++) {
+            ContentValues values = BenchmarkPets.newPet(mRows + i);
+            long startNanos = System.nanoTime();
+            mResolver.insert(PetEntry.CONTENT_URI, values);
+            latencies.record(System.nanoTime() - startNanos);
+        }
+        return latencies;
+    }
+
+    /**
+     * Time deleting distinct pets from the original fill, chosen at random.
+     */
+    private LatencyRecorder measureDelete() {
+        long[] ids = new long[mRows];
+        for (int i = 0; i < mRows; i++) {
+            ids[i] = i + 1;
+        }
+        LatencyRecorder latencies = new LatencyRecorder();
+        int operations = Math.min(OPERATIONS, mRows);
+        for (int i = 0; i < operations; i++) {
+            // Partial Fisher-Yates shuffle, so no pet is deleted twice
+            int pick = i + mRandom.nextInt(mRows - i);
+            long id = ids[pick];
+            ids[pick] = ids[i];
+            Uri uri = ContentUris.withAppendedId(PetEntry.CONTENT_URI, id);
+            long startNanos = System.nanoTime();
+            mResolver.delete(uri, null, null);
+            latencies.record(System.nanoTime() - startNanos);
+        }
+        return latencies;
+    }
+
+    private long randomId() {
+        return 1 + mRandom.nextInt(mRows);
+    }
+}